@@ -0,0 +1,107 @@
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+
+/**
+ * FAST12 detection and scoring on images held in memory segments of the foreign
+ * function and memory API, such as off-heap frames shared with native capture code.
+ * This class needs the java.lang.foreign package, final since Java 22. It lives in
+ * its own source root, src-ffm, compiled against the classes of src with Java 22 or
+ * later, as the README shows. The rest of the package does not use it.
+ *
+ * A plane is viewed as a ByteBuffer over the segment, without copying it, and goes
+ * through the ByteBuffer entry points of Fast12. A segment over a byte array is
+ * detected in place. A native or read-only segment is copied: each row is read once,
+ * with a single bulk copy checked once, into a band of rows kept per thread, where
+ * the decision tree runs on an array with no further bounds checks. Scoring copies
+ * the 7x7 neighbourhoods of the corners into one plane and scores them together.
+ *
+ * The suppression needs no pixels, so NonMaxSuppressor applies to the corners as it is.
+ *
+ */
+public class FastSegment {
+
+	/**
+	 * Detect FAST corners on a plane of a memory segment by applying a non-maximum
+	 * suppression algorithm on the results.
+	 *
+	 * @param image A segment holding the plane, such as a whole YUV frame.
+	 * @param offset The offset of the pixel (0,0) of the plane in the segment.
+	 * 				 The pixel (x,y) is at offset + y * stride + x.
+	 * @param w The width of the plane.
+	 * @param h The height of the plane.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detectWithNonMax(MemorySegment image, long offset, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners)
+	{
+		Fast12.detectWithNonMax(plane(image, offset, w, h, stride), w, h, stride, threshold, N, corners);
+	}
+
+	/**
+	 * Detect FAST corners on a plane of a memory segment WITHOUT applying a non-maximum
+	 * suppression algorithm on the results.
+	 *
+	 * @param image A segment holding the plane, such as a whole YUV frame.
+	 * @param offset The offset of the pixel (0,0) of the plane in the segment.
+	 * 				 The pixel (x,y) is at offset + y * stride + x.
+	 * @param w The width of the plane.
+	 * @param h The height of the plane.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detect(MemorySegment image, long offset, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners)
+	{
+		Fast12.detect(plane(image, offset, w, h, stride), w, h, stride, threshold, N, corners);
+	}
+
+	/**
+	 * Score corners found on a plane of a memory segment, as Fast12.score does for
+	 * a buffer.
+	 *
+	 * @param image A segment holding the plane.
+	 * @param offset The offset of the pixel (0,0) of the plane in the segment.
+	 * 				 The pixel (x,y) is at offset + y * stride + x.
+	 * @param w The width of the plane.
+	 * @param h The height of the plane.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The threshold the corners were detected with.
+	 * @param corners The corners to score. Each one must be at least 3 pixels away from
+	 * 				  the edges of the plane.
+	 * @param scorer The scorer.
+	 */
+	public static void score(MemorySegment image, long offset, int w, int h, int stride, int threshold,
+			CornerBuffer corners, CornerScorer scorer)
+	{
+		Fast12.score(plane(image, offset, w, h, stride), stride, threshold, corners, scorer);
+	}
+
+	/**
+	 * Views the bytes of a plane as a buffer starting at its pixel (0,0).
+	 */
+	private static ByteBuffer plane(MemorySegment image, long offset, int w, int h, int stride)
+	{
+		long size = (h > 0)? (long) (h - 1) * stride + w : 0;
+		if (w < 0 || h < 0 || stride < w || offset < 0 || offset + size > image.byteSize()) {
+			throw new IllegalArgumentException("A plane of " + w + "x" + h + " with stride " + stride +
+					" at " + offset + " does not fit in " + image.byteSize() + " bytes");
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A plane of " + size + " bytes is larger than a buffer can view");
+		}
+		return image.asSlice(offset, size).asByteBuffer();
+	}
+}
@@ -0,0 +1,131 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The FAST12 corner test on many adjacent pixels at once, with the Vector API of
+ * the jdk.incubator.vector module. Fast12 uses it in place of its decision tree when
+ * the module is available, that is when the JVM runs with
+ * --add-modules jdk.incubator.vector. The class lives in its own source root,
+ * src-vector, compiled with the same flag against the classes of src only when the
+ * module is there, as the README shows.
+ *
+ * The pixels are widened to shorts, one lane per centre pixel. The 4 compass pixels
+ * of the circle are compared first, and blocks where no centre has 3 of them brighter
+ * or 3 darker are skipped. Otherwise all 16 comparisons build a 16-bit mask of the
+ * brighter and of the darker pixels in every lane, and an arc of 12 is found by
+ * AND-ing the masks with rotated copies of themselves. The result is exactly the one
+ * of the decision tree.
+ *
+ */
+class Fast12Vector implements RowDetector {
+
+	private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Byte> BYTES =
+			ByteVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(SHORTS.length() * 8));
+	private static final int LANES = SHORTS.length();
+
+	@Override
+	public void detectRows(byte[] image, int offset, int w, int stride, int y0, int y1, int threshold, int[] pixel, CornerBuffer corners)
+	{
+		// The lanes hold the intensity plus or minus the threshold in a short, so
+		// other thresholds go to the tree.
+		if (threshold < 0 || threshold > 255) {
+			Fast12.detectRows(image, offset, w, stride, y0, y1, threshold, pixel, corners);
+			return;
+		}
+		testRect(image, offset, stride, 4, y0, w - 4, y1, threshold, pixel, corners);
+	}
+
+	@Override
+	public void detectRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel, 
+			CornerBuffer corners, long[] candidates)
+	{
+		if (threshold < 0 || threshold > 255) {
+			Fast12.detectRect(image, offset, stride, x0, y0, x1, y1, threshold, pixel, corners, candidates);
+			return;
+		}
+		testRect(image, offset, stride, x0, y0, x1, y1, threshold, pixel, corners);
+	}
+
+	private static void testRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel, 
+			CornerBuffer corners)
+	{
+		for (int y = y0; y < y1; ++y) {
+			int x = x0;
+			int p = offset + y * stride + x0;
+			for (; x + LANES <= x1; x += LANES, p += LANES) {
+				long found = test(image, p, pixel, threshold);
+				while (found != 0) {
+					corners.add(x + Long.numberOfTrailingZeros(found), y);
+					found &= found - 1;
+				}
+			}
+			for (; x < x1; ++x, ++p) {
+				if (Fast12.isCorner(image, p, pixel, threshold))
+					corners.add(x, y);
+			}
+		}
+	}
+
+	private static ShortVector load(byte[] image, int p)
+	{
+		return ((ShortVector) ByteVector.fromArray(BYTES, image, p)
+				.convertShape(VectorOperators.B2S, SHORTS, 0)).and((short) 0xFF);
+	}
+
+	/**
+	 * Tests LANES adjacent pixels.
+	 * @return Returns a bit set of the lanes holding a corner.
+	 */
+	private static long test(byte[] image, int p, int[] pixel, int threshold)
+	{
+		ShortVector c = load(image, p);
+		ShortVector cb = c.add((short) threshold);
+		ShortVector c_b = c.sub((short) threshold);
+
+		ShortVector v0 = load(image, p + pixel[0]);
+		ShortVector v4 = load(image, p + pixel[4]);
+		ShortVector v8 = load(image, p + pixel[8]);
+		ShortVector v12 = load(image, p + pixel[12]);
+		VectorMask<Short> b0 = v0.compare(VectorOperators.GT, cb);
+		VectorMask<Short> b4 = v4.compare(VectorOperators.GT, cb);
+		VectorMask<Short> b8 = v8.compare(VectorOperators.GT, cb);
+		VectorMask<Short> b12 = v12.compare(VectorOperators.GT, cb);
+		VectorMask<Short> d0 = v0.compare(VectorOperators.LT, c_b);
+		VectorMask<Short> d4 = v4.compare(VectorOperators.LT, c_b);
+		VectorMask<Short> d8 = v8.compare(VectorOperators.LT, c_b);
+		VectorMask<Short> d12 = v12.compare(VectorOperators.LT, c_b);
+		// An arc of 12 covers at least 3 of the 4 compass pixels.
+		VectorMask<Short> candidates =
+				b0.and(b4).and(b8.or(b12)).or(b8.and(b12).and(b0.or(b4))).or(
+				d0.and(d4).and(d8.or(d12))).or(d8.and(d12).and(d0.or(d4)));
+		if (!candidates.anyTrue())
+			return 0;
+
+		ShortVector bright = ShortVector.zero(SHORTS);
+		ShortVector dark = ShortVector.zero(SHORTS);
+		for (int k = 0; k < 16; ++k) {
+			ShortVector v = load(image, p + pixel[k]);
+			bright = bright.lanewise(VectorOperators.OR, (short) (1 << k), v.compare(VectorOperators.GT, cb));
+			dark = dark.lanewise(VectorOperators.OR, (short) (1 << k), v.compare(VectorOperators.LT, c_b));
+		}
+		VectorMask<Short> corner = arc12(bright).compare(VectorOperators.NE, (short) 0)
+				.or(arc12(dark).compare(VectorOperators.NE, (short) 0));
+		return corner.toLong();
+	}
+
+	/**
+	 * Sets bit i of every lane when bits i-11 to i, around the circle, are all set.
+	 */
+	private static ShortVector arc12(ShortVector m)
+	{
+		ShortVector r = m.and(m.lanewise(VectorOperators.ROL, 1));
+		r = r.and(r.lanewise(VectorOperators.ROL, 2));
+		r = r.and(r.lanewise(VectorOperators.ROL, 4));
+		return r.and(r.lanewise(VectorOperators.ROL, 4));
+	}
+}
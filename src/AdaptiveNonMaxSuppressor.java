@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Adaptive non-maximal suppression (ANMS, Brown, Szeliski and Winder 2005), choosing
+ * N corners spread evenly over the image out of scored corners, such as the output of
+ * the detectors.
+ *
+ * The suppression radius of a corner is its distance to the nearest corner which is
+ * sufficiently stronger, that is whose score multiplied by the robustness factor is
+ * still greater than its own. The N corners with the largest radii are kept.
+ *
+ * The corners are visited by descending score and the stronger ones are put in a grid
+ * of buckets holding about one corner each, where the nearest one is found by searching
+ * the buckets in rings around the corner, so the radii cost much less than the O(n^2)
+ * of comparing all pairs of corners. The grid is sized for the corners put in it so far
+ * and rebuilt whenever their number doubles, so a search does not go through the mostly
+ * empty buckets of a grid sized for all the corners when few of them are strong enough
+ * to suppress, as when one response dominates the image.
+ *
+ * The engine keeps its buffers between calls. It is not thread-safe. Use one per thread.
+ *
+ */
+public class AdaptiveNonMaxSuppressor {
+
+	private final float robustness;
+	private long[] order = new long[0];
+	private int[] radii = new int[0];
+	private int[] next = new int[0];
+	private int[] heads = new int[0];
+	// The side of the buckets and the size of the grid.
+	private int side;
+	private int columns;
+	private int rows;
+	private long[] heap = new long[0];
+	private int[] chosen = new int[0];
+	private final CornerBuffer kept = new CornerBuffer();
+
+	/**
+	 * Create an engine with the robustness factor of 0.9 suggested by Brown et al.
+	 */
+	public AdaptiveNonMaxSuppressor()
+	{
+		this(0.9f);
+	}
+
+	/**
+	 * Create an engine.
+	 * @param robustness The factor, between 0 and 1, a corner's score is multiplied by
+	 * 					 before being compared with the weaker corners. With 1 every
+	 * 					 corner with a greater score suppresses.
+	 */
+	public AdaptiveNonMaxSuppressor(float robustness)
+	{
+		if (!(robustness > 0 && robustness <= 1)) {
+			throw new IllegalArgumentException("The robustness factor must be in (0, 1], not " + robustness);
+		}
+		this.robustness = robustness;
+	}
+
+	public float robustness()
+	{
+		return robustness;
+	}
+
+	/**
+	 * Keep the N corners of a buffer with the largest suppression radii, in place.
+	 *
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param corners A buffer of scored corners. On return it holds the chosen ones,
+	 * 				  sorted by descending radius and, for equal radii, by score.
+	 * @param N	The number of corners to keep. To sort all corners just use N=-1.
+	 */
+	public void select(int w, int h, CornerBuffer corners, int N)
+	{
+		int n = choose(w, h, corners, N);
+		kept.clear();
+		for (int j = 0; j < n; ++j) {
+			int i = chosen[j];
+			kept.add(corners.x(i), corners.y(i), corners.score(i));
+		}
+		corners.clear();
+		corners.addAll(kept);
+	}
+
+	/**
+	 * Keep the N corners of a list with the largest suppression radii.
+	 *
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param features A list of FeaturePoint objects, most likely calculated with
+	 *  			   one of the detection functions.
+	 * @param N	The number of corners to keep. To sort all corners just use N=-1.
+	 * @return Returns the chosen FeaturePoint objects, sorted by descending radius and,
+	 * 		   for equal radii, by score.
+	 */
+	public List<FeaturePoint> select(int w, int h, List<FeaturePoint> features, int N)
+	{
+		int count = features.size();
+		CornerBuffer corners = new CornerBuffer(count);
+		for (int i = 0; i < count; ++i) {
+			FeaturePoint fp = features.get(i);
+			corners.add(fp.x(), fp.y(), fp.score());
+		}
+		int n = choose(w, h, corners, N);
+		List<FeaturePoint> selected = new ArrayList<FeaturePoint>(n);
+		for (int j = 0; j < n; ++j) {
+			selected.add(features.get(chosen[j]));
+		}
+		return selected;
+	}
+
+	/**
+	 * Puts the positions of the N corners with the largest radii in chosen, sorted
+	 * by descending radius and, for equal radii, by score.
+	 * @return Returns the number of corners chosen.
+	 */
+	private int choose(int w, int h, CornerBuffer corners, int N)
+	{
+		int count = corners.size();
+		int n = (N == -1)? count : Math.max(0, Math.min(N, count));
+		radii(w, h, corners);
+		if (heap.length < n) {
+			heap = new long[n];
+			chosen = new int[n];
+		}
+		// Rank the score ranks k by radius.
+		int size = 0;
+		for (int k = 0; k < count && n > 0; ++k) {
+			size = CornerBuffer.offer(heap, size, n, CornerBuffer.rankKey(radii[k], k));
+		}
+		Arrays.sort(heap, 0, size);
+		for (int j = 0; j < size; ++j) {
+			chosen[j] = CornerBuffer.rankIndex(~order[CornerBuffer.rankIndex(heap[size - 1 - j])]);
+		}
+		return size;
+	}
+
+	/**
+	 * Sorts the corners by descending score into order, as complemented rank keys,
+	 * and sets radii[k] to the squared suppression radius of corner order[k], or
+	 * Integer.MAX_VALUE when no corner is strong enough to suppress it.
+	 */
+	private void radii(int w, int h, CornerBuffer corners)
+	{
+		int count = corners.size();
+		if (order.length < count) {
+			int capacity = Math.max(count, order.length + (order.length >> 1));
+			order = new long[capacity];
+			radii = new int[capacity];
+			next = new int[capacity];
+		}
+		for (int i = 0; i < count; ++i) {
+			order[i] = ~CornerBuffer.rankKey(corners.score(i), i);
+		}
+		Arrays.sort(order, 0, count);
+
+		int inserted = 0;
+		int sized = 0;
+		for (int k = 0; k < count; ++k) {
+			int i = CornerBuffer.rankIndex(~order[k]);
+			int score = corners.score(i);
+			// The scores decrease, so the corners strong enough to suppress this one
+			// are a prefix of the order which only grows.
+			int from = inserted;
+			while (inserted < k && score < robustness * corners.score(CornerBuffer.rankIndex(~order[inserted]))) {
+				inserted++;
+			}
+			if (inserted > 0 && inserted >= 2 * sized) {
+				// Buckets of the new side hold about one of the inserted corners each.
+				sized = inserted;
+				grid(w, h, sized);
+				from = 0;
+			}
+			for (int m = from; m < inserted; ++m) {
+				insert(corners, CornerBuffer.rankIndex(~order[m]));
+			}
+			radii[k] = (inserted == 0)? Integer.MAX_VALUE : nearest(corners, corners.x(i), corners.y(i));
+		}
+	}
+
+	/**
+	 * Empties the grid and sizes its buckets to hold about one of count corners each.
+	 */
+	private void grid(int w, int h, int count)
+	{
+		side = Math.max(1, (int) Math.sqrt((double) w * h / Math.max(count, 1)));
+		columns = (w + side - 1) / side;
+		rows = (h + side - 1) / side;
+		if (heads.length < columns * rows) {
+			heads = new int[columns * rows];
+		}
+		Arrays.fill(heads, 0, columns * rows, -1);
+	}
+
+	private void insert(CornerBuffer corners, int j)
+	{
+		int bucket = Math.min(corners.y(j) / side, rows - 1) * columns + Math.min(corners.x(j) / side, columns - 1);
+		next[j] = heads[bucket];
+		heads[bucket] = j;
+	}
+
+	/**
+	 * Finds the squared distance from (x,y) to the nearest corner in the buckets,
+	 * searching them in rings of growing radius around the bucket of (x,y).
+	 */
+	private int nearest(CornerBuffer corners, int x, int y)
+	{
+		int s = side;
+		int cx = Math.min(x / s, columns - 1);
+		int cy = Math.min(y / s, rows - 1);
+		long best = Long.MAX_VALUE;
+		int rings = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+		for (int r = 0; r <= rings; ++r) {
+			// Any corner in ring r is at least (r-1)*s+1 away along one axis.
+			long bound = (r == 0)? 0 : (long) (r - 1) * s + 1;
+			if (bound * bound >= best)
+				break;
+			for (int v = Math.max(cy - r, 0); v <= Math.min(cy + r, rows - 1); ++v) {
+				if (v == cy - r || v == cy + r) {
+					for (int u = Math.max(cx - r, 0); u <= Math.min(cx + r, columns - 1); ++u) {
+						best = nearest(corners, x, y, heads[v * columns + u], best);
+					}
+				} else {
+					if (cx - r >= 0)
+						best = nearest(corners, x, y, heads[v * columns + cx - r], best);
+					if (cx + r < columns)
+						best = nearest(corners, x, y, heads[v * columns + cx + r], best);
+				}
+			}
+		}
+		return (int) Math.min(best, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finds the squared distance from (x,y) to the nearest corner of a bucket, if it
+	 * is nearer than best.
+	 */
+	private long nearest(CornerBuffer corners, int x, int y, int head, long best)
+	{
+		for (int j = head; j != -1; j = next[j]) {
+			long dx = corners.x(j) - x;
+			long dy = corners.y(j) - y;
+			best = Math.min(best, dx * dx + dy * dy);
+		}
+		return best;
+	}
+}
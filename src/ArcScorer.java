@@ -0,0 +1,88 @@
+
+/**
+ * Scores corners with the maximal threshold at which they still pass the segment
+ * test, the same score the binary search of Fast12 finds, in a single pass over the
+ * 16 pixels of the circle.
+ *
+ * A point passes the test for threshold b when the pixels of some contiguous arc
+ * are all brighter than the centre plus b, or all darker than the centre minus b.
+ * The largest such b is one less than the best, over all arcs, of the smallest
+ * difference along the arc. The minimum and maximum of the differences over every
+ * arc are built by doubling the window length, so each corner costs a fixed number
+ * of comparisons and no branches on the pixel values.
+ *
+ */
+public class ArcScorer implements CornerScorer {
+
+	private final int arc;
+	private final int span;
+
+	/**
+	 * Create a scorer for a segment test.
+	 * @param arc The number of contiguous circle pixels the test needs, 1 to 16.
+	 */
+	public ArcScorer(int arc)
+	{
+		if (arc < 1 || arc > 16) {
+			throw new IllegalArgumentException("Arc length must be between 1 and 16: " + arc);
+		}
+		this.arc = arc;
+		this.span = Integer.highestOneBit(arc);
+	}
+
+	public int arc()
+	{
+		return arc;
+	}
+
+	@Override
+	public void score(byte[] image, int offset, int stride, int threshold, CornerBuffer corners)
+	{
+		int[] pixel = Fast12.circleOffsets(stride);
+		// The circle is unrolled twice so that every arc is a plain window.
+		int[] lo = new int[32];
+		int[] hi = new int[32];
+		int count = corners.size();
+		for (int i = 0; i < count; ++i) {
+			int p = offset + corners.y(i) * stride + corners.x(i);
+			corners.score(i, score(image, p, pixel, lo, hi));
+		}
+	}
+
+	/**
+	 * Scores a single point.
+	 *
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param p The index of the point in the image array.
+	 * @param pixel The circle offsets, as returned by Fast12.circleOffsets.
+	 * @param lo Scratch space of 32 integers.
+	 * @param hi Scratch space of 32 integers.
+	 * @return Returns the maximal threshold at which the point is a corner, or 0.
+	 */
+	int score(byte[] image, int p, int[] pixel, int[] lo, int[] hi)
+	{
+		int c = image[p] & 0xFF;
+		for (int k = 0; k < 16; ++k) {
+			int d = (image[p + pixel[k]] & 0xFF) - c;
+			lo[k] = lo[k + 16] = d;
+			hi[k] = hi[k + 16] = d;
+		}
+		// After this loop lo[k] and hi[k] are the minimum and maximum of the
+		// differences in the window of length span starting at k.
+		for (int len = 1; len < span; len <<= 1) {
+			for (int k = 0; k < 32 - len; ++k) {
+				lo[k] = Math.min(lo[k], lo[k + len]);
+				hi[k] = Math.max(hi[k], hi[k + len]);
+			}
+		}
+		// An arc is covered by two, possibly overlapping, windows.
+		int rest = arc - span;
+		int brighter = Integer.MIN_VALUE;
+		int darker = Integer.MAX_VALUE;
+		for (int k = 0; k < 16; ++k) {
+			brighter = Math.max(brighter, Math.min(lo[k], lo[k + rest]));
+			darker = Math.min(darker, Math.max(hi[k], hi[k + rest]));
+		}
+		return Math.max(0, Math.max(brighter, -darker) - 1);
+	}
+}
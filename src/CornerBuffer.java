@@ -0,0 +1,299 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A reusable buffer of corners backed by primitive arrays. The buffer grows on
+ * demand and keeps its storage between uses, so a detector writing into the same
+ * buffer frame after frame does not allocate once the buffer has reached its
+ * working size.
+ *
+ */
+public class CornerBuffer {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private int[] xs;
+	private int[] ys;
+	private int[] scores;
+	private int size = 0;
+
+	// Scratch storage for sorting, kept to avoid allocating on every sort.
+	private long[] keys = new long[0];
+	private int[] tmp = new int[0];
+
+	/**
+	 * Create an empty buffer with a default capacity.
+	 */
+	public CornerBuffer()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create an empty buffer.
+	 * @param capacity The number of corners the buffer can hold before growing.
+	 */
+	public CornerBuffer(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		xs = new int[capacity];
+		ys = new int[capacity];
+		scores = new int[capacity];
+	}
+
+	/**
+	 * Append a corner with zero score.
+	 * @param x The x-coordinate of the corner.
+	 * @param y The y-coordinate of the corner.
+	 */
+	public void add(int x, int y)
+	{
+		add(x, y, 0);
+	}
+
+	/**
+	 * Append a corner.
+	 * @param x The x-coordinate of the corner.
+	 * @param y The y-coordinate of the corner.
+	 * @param score The score of the corner.
+	 */
+	public void add(int x, int y, int score)
+	{
+		if (size == xs.length) {
+			grow(size + 1);
+		}
+		xs[size] = x;
+		ys[size] = y;
+		scores[size] = score;
+		size++;
+	}
+
+	/**
+	 * Append all the corners of another buffer.
+	 * @param other The buffer to copy the corners from.
+	 */
+	public void addAll(CornerBuffer other)
+	{
+		int n = other.size;
+		ensureCapacity(size + n);
+		System.arraycopy(other.xs, 0, xs, size, n);
+		System.arraycopy(other.ys, 0, ys, size, n);
+		System.arraycopy(other.scores, 0, scores, size, n);
+		size += n;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int x(int i)
+	{
+		return xs[i];
+	}
+
+	public int y(int i)
+	{
+		return ys[i];
+	}
+
+	public int score(int i)
+	{
+		return scores[i];
+	}
+
+	public void score(int i, int score)
+	{
+		scores[i] = score;
+	}
+
+	/**
+	 * Remove all corners, keeping the storage.
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Keep only the first n corners.
+	 * @param n The number of corners to keep.
+	 */
+	public void truncate(int n)
+	{
+		if (n < size) {
+			size = Math.max(n, 0);
+		}
+	}
+
+	/**
+	 * Move the i-th corner to position j, overwriting it. Used to compact
+	 * the buffer in place, so j must not be greater than i.
+	 */
+	void move(int i, int j)
+	{
+		xs[j] = xs[i];
+		ys[j] = ys[i];
+		scores[j] = scores[i];
+	}
+
+	/**
+	 * Make sure the buffer can hold at least the given number of corners
+	 * without growing.
+	 * @param capacity The required capacity.
+	 */
+	public void ensureCapacity(int capacity)
+	{
+		if (capacity > xs.length) {
+			grow(capacity);
+		}
+	}
+
+	private void grow(int minCapacity)
+	{
+		int capacity = Math.max(xs.length + (xs.length >> 1), minCapacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		scores = Arrays.copyOf(scores, capacity);
+	}
+
+	/**
+	 * Sort the corners by descending score. Corners with equal scores keep
+	 * their relative order, as with Collections.sort.
+	 */
+	public void sortByScore()
+	{
+		if (keys.length < size) {
+			keys = new long[xs.length];
+			tmp = new int[xs.length];
+		}
+		// The high word orders by descending score, the low word by position.
+		for (int i = 0; i < size; ++i) {
+			keys[i] = ((long) ~scores[i] << 32) | i;
+		}
+		Arrays.sort(keys, 0, size);
+		permute(xs);
+		permute(ys);
+		permute(scores);
+	}
+
+	/**
+	 * Keep only the n best corners, sorted by descending score. Corners with equal
+	 * scores keep their relative order, so the result is the same as sorting the
+	 * whole buffer and truncating it, but it costs O(size log n) with n much smaller
+	 * than size.
+	 * @param n The number of corners to keep.
+	 */
+	public void selectBest(int n)
+	{
+		if (n >= size) {
+			sortByScore();
+			return;
+		}
+		if (n <= 0) {
+			size = 0;
+			return;
+		}
+		if (keys.length < n) {
+			keys = new long[xs.length];
+			tmp = new int[xs.length];
+		}
+		int count = 0;
+		for (int i = 0; i < size; ++i) {
+			count = offer(keys, count, n, rankKey(scores[i], i));
+		}
+		// The heap holds the best n keys. Complementing them turns descending
+		// order into ascending, which is what Arrays.sort gives.
+		for (int i = 0; i < n; ++i) {
+			keys[i] = ~keys[i];
+		}
+		Arrays.sort(keys, 0, n);
+		for (int i = 0; i < n; ++i) {
+			keys[i] = rankIndex(~keys[i]);
+		}
+		size = n;
+		permute(xs);
+		permute(ys);
+		permute(scores);
+	}
+
+	/**
+	 * A key ordering corners by ascending score and, for equal scores, by
+	 * descending position, so that larger keys denote better corners.
+	 * @param score The score of the corner.
+	 * @param i The position of the corner.
+	 */
+	static long rankKey(int score, int i)
+	{
+		return ((long) score << 32) | (~i & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * The position encoded in a key returned by rankKey.
+	 */
+	static int rankIndex(long key)
+	{
+		return ~(int) key;
+	}
+
+	/**
+	 * Offer a key to a bounded min-heap, which keeps the largest keys offered.
+	 * @param heap The heap storage, of length at least capacity.
+	 * @param count The number of keys in the heap.
+	 * @param capacity The maximum number of keys the heap keeps.
+	 * @param key The key to offer.
+	 * @return The number of keys in the heap after the offer.
+	 */
+	static int offer(long[] heap, int count, int capacity, long key)
+	{
+		if (count < capacity) {
+			int i = count++;
+			while (i > 0) {
+				int parent = (i - 1) >> 1;
+				if (heap[parent] <= key)
+					break;
+				heap[i] = heap[parent];
+				i = parent;
+			}
+			heap[i] = key;
+		} else if (key > heap[0]) {
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= count)
+					break;
+				if (child + 1 < count && heap[child + 1] < heap[child])
+					child++;
+				if (heap[child] >= key)
+					break;
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = key;
+		}
+		return count;
+	}
+
+	private void permute(int[] values)
+	{
+		for (int i = 0; i < size; ++i) {
+			tmp[i] = values[(int) keys[i]];
+		}
+		System.arraycopy(tmp, 0, values, 0, size);
+	}
+
+	/**
+	 * Copies the corners of the buffer into a new, modifiable ArrayList, in their
+	 * order in the buffer. Later changes to the buffer do not affect the list.
+	 * @return A list of FeaturePoint objects.
+	 */
+	public List<FeaturePoint> toList()
+	{
+		ArrayList<FeaturePoint> list = new ArrayList<FeaturePoint>(size);
+		for (int i = 0; i < size; ++i) {
+			list.add(new FeaturePoint(xs[i], ys[i], scores[i]));
+		}
+		return list;
+	}
+}
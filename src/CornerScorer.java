@@ -0,0 +1,20 @@
+
+/**
+ * A strategy for scoring the corners found by a detector. The scores are used
+ * to rank the corners and by the non-maximum suppression.
+ *
+ */
+public interface CornerScorer {
+
+	/**
+	 * Scores every corner of a buffer.
+	 *
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param offset The index of the pixel (0,0) in the image array. The corner at
+	 * 				 (x,y) is at index offset + y * stride + x.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The threshold the corners were detected with.
+	 * @param corners The corners to score.
+	 */
+	void score(byte[] image, int offset, int stride, int threshold, CornerBuffer corners);
+}
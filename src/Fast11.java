@@ -0,0 +1,178 @@
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The FAST11 corner detector, finding points with 11 contiguous circle pixels all
+ * brighter or all darker than the centre. It has the detect and detectWithNonMax
+ * methods of Fast12 on int[][] and byte[] images, sequential, parallel and in a
+ * region, and shares its FeaturePoint, scoring and suppression. The methods are
+ * those of FastN.of(11), where they are documented.
+ *
+ */
+public class Fast11 {
+
+	private static final FastN DETECTOR = FastN.of(11);
+
+	/**
+	 * Scores corners with the maximal threshold at which they are still FAST11 corners.
+	 */
+	public static final CornerScorer SINGLE_PASS_SCORE = DETECTOR.scorer();
+
+	/**
+	 * See FastN.detectWithNonMax(int[][], int, int, int, int).
+	 * @throws IllegalArgumentException when an intensity is outside 0..255.
+	 */
+	public static List<FeaturePoint> detectWithNonMax(int[][] image, int w, int h, int threshold, int N)
+	{
+		return DETECTOR.detectWithNonMax(image, w, h, threshold, N);
+	}
+
+	/**
+	 * See FastN.detect(int[][], int, int, int, int).
+	 * @throws IllegalArgumentException when an intensity is outside 0..255.
+	 */
+	public static List<FeaturePoint> detect(int[][] image, int w, int h, int threshold, int N)
+	{
+		return DETECTOR.detect(image, w, h, threshold, N);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int).
+	 */
+	public static List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N)
+	{
+		return DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N);
+	}
+
+	/**
+	 * See FastN.detect(byte[], int, int, int, int, int).
+	 */
+	public static List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N)
+	{
+		return DETECTOR.detect(image, w, h, stride, threshold, N);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, CornerBuffer).
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners)
+	{
+		DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, corners);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, CornerBuffer, CornerScorer).
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners, CornerScorer scorer)
+	{
+		DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, CornerBuffer, CornerScorer, NonMaxSuppressor).
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners, CornerScorer scorer, NonMaxSuppressor suppressor)
+	{
+		DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, suppressor);
+	}
+
+	/**
+	 * See FastN.detect(byte[], int, int, int, int, int, CornerBuffer).
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners)
+	{
+		DETECTOR.detect(image, w, h, stride, threshold, N, corners);
+	}
+
+	/**
+	 * See FastN.detect(byte[], int, int, int, int, int, CornerBuffer, CornerScorer).
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			CornerScorer scorer)
+	{
+		DETECTOR.detect(image, w, h, stride, threshold, N, corners, scorer);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, CornerBuffer, Executor).
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners, Executor executor)
+	{
+		DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, corners, executor);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, CornerBuffer, CornerScorer, Executor).
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners, CornerScorer scorer, Executor executor)
+	{
+		DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, executor);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, CornerBuffer, CornerScorer, NonMaxSuppressor, Executor).
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners, CornerScorer scorer, NonMaxSuppressor suppressor, Executor executor)
+	{
+		DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, suppressor, executor);
+	}
+
+	/**
+	 * See FastN.detect(byte[], int, int, int, int, int, CornerBuffer, Executor).
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			Executor executor)
+	{
+		DETECTOR.detect(image, w, h, stride, threshold, N, corners, executor);
+	}
+
+	/**
+	 * See FastN.detect(byte[], int, int, int, int, int, CornerBuffer, CornerScorer, Executor).
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			CornerScorer scorer, Executor executor)
+	{
+		DETECTOR.detect(image, w, h, stride, threshold, N, corners, scorer, executor);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, Region).
+	 */
+	public static List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			Region region)
+	{
+		return DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, region);
+	}
+
+	/**
+	 * See FastN.detect(byte[], int, int, int, int, int, Region).
+	 */
+	public static List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N, Region region)
+	{
+		return DETECTOR.detect(image, w, h, stride, threshold, N, region);
+	}
+
+	/**
+	 * See FastN.detectWithNonMax(byte[], int, int, int, int, int, CornerBuffer, Region).
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N,
+			CornerBuffer corners, Region region)
+	{
+		DETECTOR.detectWithNonMax(image, w, h, stride, threshold, N, corners, region);
+	}
+
+	/**
+	 * See FastN.detect(byte[], int, int, int, int, int, CornerBuffer, Region).
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			Region region)
+	{
+		DETECTOR.detect(image, w, h, stride, threshold, N, corners, region);
+	}
+}
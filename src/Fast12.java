@@ -1,7 +1,17 @@
 
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The FAST12 corner detection algorithm. The code is a port from the Python code
@@ -12,6 +22,98 @@ import java.util.List;
  */
 public class Fast12 {
 	
+	/**
+	 * The smallest number of rows given to a band by the parallel detectors.
+	 */
+	private static final int MIN_BAND_ROWS = 16;
+	
+	/**
+	 * The number of rows of a buffer without an array tested per band copied.
+	 */
+	private static final int BUFFER_BAND_ROWS = 64;
+	
+	/**
+	 * The scratch the pixels of a buffer without an array are copied into, and the
+	 * corners found in it, kept per thread.
+	 */
+	private static final ThreadLocal<BufferScratch> BUFFER_SCRATCH = new ThreadLocal<BufferScratch>() {
+		@Override
+		protected BufferScratch initialValue()
+		{
+			return new BufferScratch();
+		}
+	};
+	
+	/**
+	 * The vectorised corner test of Fast12Vector, or null when the jdk.incubator.vector
+	 * module or the class, built from src-vector, is not available and the decision
+	 * tree is used instead.
+	 */
+	private static final RowDetector VECTOR_ROWS = loadVectorRows();
+	
+	/**
+	 * The corner test of the decision tree, behind the compass pre-test.
+	 */
+	private static final RowDetector TREE_ROWS = new RowDetector() {
+		public void detectRows(byte[] image, int offset, int w, int stride, int y0, int y1, int threshold, int[] pixel, 
+				CornerBuffer corners)
+		{
+			Fast12.detectRows(image, offset, w, stride, y0, y1, threshold, pixel, corners);
+		}
+		
+		public void detectRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel, 
+				CornerBuffer corners, long[] candidates)
+		{
+			Fast12.detectRect(image, offset, stride, x0, y0, x1, y1, threshold, pixel, corners, candidates);
+		}
+	};
+	
+	/**
+	 * The corner test in use: Fast12Vector when it is available, the decision tree
+	 * otherwise. Both find the same corners.
+	 */
+	static final RowDetector ROWS = (VECTOR_ROWS != null)? VECTOR_ROWS : TREE_ROWS;
+	
+	/**
+	 * Reads 8 pixels of a byte array as a long, the first pixel in the lowest byte.
+	 */
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	/**
+	 * SWAR constants: 1 and the top bit in each byte of a long, and the multiplier
+	 * gathering the lowest bit of each byte into the top byte.
+	 */
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long GATHER = 0x0102040810204080L;
+	
+	/**
+	 * Scores corners with the maximal threshold at which they are still corners, 
+	 * found by a binary search over the thresholds using the decision tree.
+	 */
+	public static final CornerScorer BINARY_SEARCH_SCORE = new CornerScorer() {
+		public void score(byte[] image, int offset, int stride, int threshold, CornerBuffer corners)
+		{
+			int[] pixel = circleOffsets(stride);
+			for (int i = 0; i < corners.size(); ++i) {
+				corners.score(i, cornerScore(image, offset + corners.y(i) * stride + corners.x(i), pixel));
+			}
+		}
+	};
+	
+	/**
+	 * Scores corners with the same score as BINARY_SEARCH_SCORE, computed in a single
+	 * pass over the circle. This is the scorer used when none is given.
+	 */
+	public static final CornerScorer SINGLE_PASS_SCORE = new ArcScorer(12);
+	
+	/**
+	 * Scores corners with the sum of absolute differences between the centre and the 
+	 * circle pixels passing the threshold. Cheaper than the two scores above and enough
+	 * for ranking and suppression, but not a maximal threshold.
+	 */
+	public static final CornerScorer SAD_SCORE = new SadScorer();
+	
 	/**
 	 * Detect FAST corners by applying a non-maximum suppression algorithm on the results,
 	 * to allow only maximal corners.
@@ -27,16 +129,11 @@ public class Fast12 {
 	 * 			use N=-1.
 	 * 
 	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 * @throws IllegalArgumentException when an intensity is outside 0..255.
 	 */
 	public static List<FeaturePoint> detectWithNonMax(int[][] image, int w, int h, int threshold, int N) 
 	{
-		List<FeaturePoint> features = detect(image, w, h, threshold, -1);
-		features = nonMaxSuppression(w, h, features);
-		int count = features.size();
-		if (N == -1)
-			return features;
-		else
-			return features.subList(0, (count > N)? N : count);
+		return detectWithNonMax(flatten(image, w, h), w, h, w, threshold, N);
 	}
 	
 	/**
@@ -55,3136 +152,3092 @@ public class Fast12 {
 	 * 			use N=-1.
 	 * 
 	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 * @throws IllegalArgumentException when an intensity is outside 0..255.
 	 */
 	public static List<FeaturePoint> detect(int[][] image, int w, int h, int threshold, int N)
 	{
-		ArrayList<FeaturePoint> corners = new ArrayList<FeaturePoint>();
-		int count = 0;
-		
-		for (int y = 4; y < h - 4; ++y) {
-			for (int x = 4; x < w - 4; ++x) {
-				int cb = image[y][x] + threshold;
-				int c_b = image[y][x] - threshold;
-				if (image[y+3][x+0] > cb) 
-				 if (image[y+3][x+1] > cb) 
-				  if (image[y+2][x+2] > cb) 
-				   if (image[y+1][x+3] > cb) 
-				    if (image[y+0][x+3] > cb) 
-				     if (image[y+-1][x+3] > cb) 
-				      if (image[y+-2][x+2] > cb) 
-				       if (image[y+-3][x+1] > cb) 
-				        if (image[y+-3][x+0] > cb) 
-				         if (image[y+-3][x+-1] > cb) 
-				          if (image[y+-2][x+-2] > cb) 
-				           if (image[y+-1][x+-3] > cb) 
-				            {;}
-				           else
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				          else
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				         else
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				        else
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				       else
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				      else
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				     else
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				    else if (image[y+0][x+3] < c_b) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else if (image[y+-3][x+0] < c_b) 
-				      if (image[y+-1][x+3] < c_b)
-				       if (image[y+-2][x+2] < c_b)
-				        if (image[y+-3][x+1] < c_b)
-				         if (image[y+-3][x+-1] < c_b)
-				          if (image[y+-2][x+-2] < c_b)
-				           if (image[y+-1][x+-3] < c_b)
-				            if (image[y+0][x+-3] < c_b)
-				             if (image[y+1][x+-3] < c_b)
-				              if (image[y+2][x+-2] < c_b)
-				               if (image[y+3][x+-1] < c_b)
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				   else if (image[y+1][x+3] < c_b) 
-				    if (image[y+3][x+-1] > cb) 
-				     if (image[y+-3][x+1] > cb) 
-				      if (image[y+-3][x+0] > cb) 
-				       if (image[y+-3][x+-1] > cb) 
-				        if (image[y+-2][x+-2] > cb) 
-				         if (image[y+-1][x+-3] > cb) 
-				          if (image[y+0][x+-3] > cb) 
-				           if (image[y+1][x+-3] > cb) 
-				            if (image[y+2][x+-2] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else if (image[y+-3][x+1] < c_b) 
-				      if (image[y+0][x+3] < c_b)
-				       if (image[y+-1][x+3] < c_b)
-				        if (image[y+-2][x+2] < c_b)
-				         if (image[y+-3][x+0] < c_b)
-				          if (image[y+-3][x+-1] < c_b)
-				           if (image[y+-2][x+-2] < c_b)
-				            if (image[y+-1][x+-3] < c_b)
-				             if (image[y+0][x+-3] < c_b)
-				              if (image[y+1][x+-3] < c_b)
-				               if (image[y+2][x+-2] < c_b)
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     if (image[y+0][x+3] < c_b)
-				      if (image[y+-1][x+3] < c_b)
-				       if (image[y+-2][x+2] < c_b)
-				        if (image[y+-3][x+1] < c_b)
-				         if (image[y+-3][x+0] < c_b)
-				          if (image[y+-3][x+-1] < c_b)
-				           if (image[y+-2][x+-2] < c_b)
-				            if (image[y+-1][x+-3] < c_b)
-				             if (image[y+0][x+-3] < c_b)
-				              if (image[y+1][x+-3] < c_b)
-				               if (image[y+2][x+-2] < c_b)
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				   else
-				    if (image[y+-3][x+1] > cb) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else if (image[y+-3][x+1] < c_b) 
-				     if (image[y+0][x+3] < c_b)
-				      if (image[y+-1][x+3] < c_b)
-				       if (image[y+-2][x+2] < c_b)
-				        if (image[y+-3][x+0] < c_b)
-				         if (image[y+-3][x+-1] < c_b)
-				          if (image[y+-2][x+-2] < c_b)
-				           if (image[y+-1][x+-3] < c_b)
-				            if (image[y+0][x+-3] < c_b)
-				             if (image[y+1][x+-3] < c_b)
-				              if (image[y+2][x+-2] < c_b)
-				               if (image[y+3][x+-1] < c_b)
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				  else if (image[y+2][x+2] < c_b) 
-				   if (image[y+-2][x+2] > cb) 
-				    if (image[y+-3][x+1] > cb) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             if (image[y+1][x+3] > cb) 
-				              if (image[y+0][x+3] > cb) 
-				               if (image[y+-1][x+3] > cb) 
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else if (image[y+-2][x+2] < c_b) 
-				    if (image[y+0][x+3] < c_b)
-				     if (image[y+-1][x+3] < c_b)
-				      if (image[y+-3][x+1] < c_b)
-				       if (image[y+-3][x+0] < c_b)
-				        if (image[y+-3][x+-1] < c_b)
-				         if (image[y+-2][x+-2] < c_b)
-				          if (image[y+-1][x+-3] < c_b)
-				           if (image[y+0][x+-3] < c_b)
-				            if (image[y+1][x+-3] < c_b)
-				             if (image[y+1][x+3] < c_b)
-				              {;}
-				             else
-				              if (image[y+2][x+-2] < c_b)
-				               if (image[y+3][x+-1] < c_b)
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else
-				   if (image[y+-2][x+2] > cb) 
-				    if (image[y+-3][x+1] > cb) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             if (image[y+1][x+3] > cb) 
-				              if (image[y+0][x+3] > cb) 
-				               if (image[y+-1][x+3] > cb) 
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else if (image[y+-2][x+2] < c_b) 
-				    if (image[y+0][x+3] < c_b)
-				     if (image[y+-1][x+3] < c_b)
-				      if (image[y+-3][x+1] < c_b)
-				       if (image[y+-3][x+0] < c_b)
-				        if (image[y+-3][x+-1] < c_b)
-				         if (image[y+-2][x+-2] < c_b)
-				          if (image[y+-1][x+-3] < c_b)
-				           if (image[y+0][x+-3] < c_b)
-				            if (image[y+1][x+-3] < c_b)
-				             if (image[y+2][x+-2] < c_b)
-				              if (image[y+1][x+3] < c_b)
-				               {;}
-				              else
-				               if (image[y+3][x+-1] < c_b)
-				                {;}
-				               else
-				                continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				 else if (image[y+3][x+1] < c_b) 
-				  if (image[y+-1][x+3] > cb) 
-				   if (image[y+-2][x+2] > cb) 
-				    if (image[y+-3][x+1] > cb) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             if (image[y+1][x+3] > cb) 
-				              if (image[y+0][x+3] > cb) 
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            if (image[y+2][x+2] > cb) 
-				             if (image[y+1][x+3] > cb) 
-				              if (image[y+0][x+3] > cb) 
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else if (image[y+-1][x+3] < c_b) 
-				   if (image[y+0][x+3] < c_b)
-				    if (image[y+-2][x+2] < c_b)
-				     if (image[y+-3][x+1] < c_b)
-				      if (image[y+-3][x+0] < c_b)
-				       if (image[y+-3][x+-1] < c_b)
-				        if (image[y+-2][x+-2] < c_b)
-				         if (image[y+-1][x+-3] < c_b)
-				          if (image[y+0][x+-3] < c_b)
-				           if (image[y+1][x+3] < c_b)
-				            if (image[y+2][x+2] < c_b)
-				             {;}
-				            else
-				             if (image[y+1][x+-3] < c_b)
-				              if (image[y+2][x+-2] < c_b)
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            if (image[y+1][x+-3] < c_b)
-				             if (image[y+2][x+-2] < c_b)
-				              if (image[y+3][x+-1] < c_b)
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else
-				   continue;
-				 else
-				  if (image[y+-1][x+3] > cb) 
-				   if (image[y+-2][x+2] > cb) 
-				    if (image[y+-3][x+1] > cb) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+-3] > cb) 
-				           if (image[y+2][x+-2] > cb) 
-				            if (image[y+3][x+-1] > cb) 
-				             {;}
-				            else
-				             if (image[y+1][x+3] > cb) 
-				              if (image[y+0][x+3] > cb) 
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            if (image[y+2][x+2] > cb) 
-				             if (image[y+1][x+3] > cb) 
-				              if (image[y+0][x+3] > cb) 
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else if (image[y+-1][x+3] < c_b) 
-				   if (image[y+0][x+3] < c_b)
-				    if (image[y+-2][x+2] < c_b)
-				     if (image[y+-3][x+1] < c_b)
-				      if (image[y+-3][x+0] < c_b)
-				       if (image[y+-3][x+-1] < c_b)
-				        if (image[y+-2][x+-2] < c_b)
-				         if (image[y+-1][x+-3] < c_b)
-				          if (image[y+0][x+-3] < c_b)
-				           if (image[y+1][x+-3] < c_b)
-				            if (image[y+1][x+3] < c_b)
-				             if (image[y+2][x+2] < c_b)
-				              {;}
-				             else
-				              if (image[y+2][x+-2] < c_b)
-				               {;}
-				              else
-				               continue;
-				            else
-				             if (image[y+2][x+-2] < c_b)
-				              if (image[y+3][x+-1] < c_b)
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else
-				   continue;
-				else if (image[y+3][x+0] < c_b) 
-				 if (image[y+3][x+1] > cb) 
-				  if (image[y+-1][x+3] > cb) 
-				   if (image[y+0][x+3] > cb) 
-				    if (image[y+-2][x+2] > cb) 
-				     if (image[y+-3][x+1] > cb) 
-				      if (image[y+-3][x+0] > cb) 
-				       if (image[y+-3][x+-1] > cb) 
-				        if (image[y+-2][x+-2] > cb) 
-				         if (image[y+-1][x+-3] > cb) 
-				          if (image[y+0][x+-3] > cb) 
-				           if (image[y+1][x+3] > cb) 
-				            if (image[y+2][x+2] > cb) 
-				             {;}
-				            else
-				             if (image[y+1][x+-3] > cb) 
-				              if (image[y+2][x+-2] > cb) 
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            if (image[y+1][x+-3] > cb) 
-				             if (image[y+2][x+-2] > cb) 
-				              if (image[y+3][x+-1] > cb) 
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else if (image[y+-1][x+3] < c_b) 
-				   if (image[y+-2][x+2] < c_b)
-				    if (image[y+-3][x+1] < c_b)
-				     if (image[y+-3][x+0] < c_b)
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             if (image[y+1][x+3] < c_b)
-				              if (image[y+0][x+3] < c_b)
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            if (image[y+2][x+2] < c_b)
-				             if (image[y+1][x+3] < c_b)
-				              if (image[y+0][x+3] < c_b)
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else
-				   continue;
-				 else if (image[y+3][x+1] < c_b) 
-				  if (image[y+2][x+2] > cb) 
-				   if (image[y+-2][x+2] > cb) 
-				    if (image[y+0][x+3] > cb) 
-				     if (image[y+-1][x+3] > cb) 
-				      if (image[y+-3][x+1] > cb) 
-				       if (image[y+-3][x+0] > cb) 
-				        if (image[y+-3][x+-1] > cb) 
-				         if (image[y+-2][x+-2] > cb) 
-				          if (image[y+-1][x+-3] > cb) 
-				           if (image[y+0][x+-3] > cb) 
-				            if (image[y+1][x+-3] > cb) 
-				             if (image[y+1][x+3] > cb) 
-				              {;}
-				             else
-				              if (image[y+2][x+-2] > cb) 
-				               if (image[y+3][x+-1] > cb) 
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else if (image[y+-2][x+2] < c_b) 
-				    if (image[y+-3][x+1] < c_b)
-				     if (image[y+-3][x+0] < c_b)
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             if (image[y+1][x+3] < c_b)
-				              if (image[y+0][x+3] < c_b)
-				               if (image[y+-1][x+3] < c_b)
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else if (image[y+2][x+2] < c_b) 
-				   if (image[y+1][x+3] > cb) 
-				    if (image[y+3][x+-1] < c_b)
-				     if (image[y+-3][x+1] > cb) 
-				      if (image[y+0][x+3] > cb) 
-				       if (image[y+-1][x+3] > cb) 
-				        if (image[y+-2][x+2] > cb) 
-				         if (image[y+-3][x+0] > cb) 
-				          if (image[y+-3][x+-1] > cb) 
-				           if (image[y+-2][x+-2] > cb) 
-				            if (image[y+-1][x+-3] > cb) 
-				             if (image[y+0][x+-3] > cb) 
-				              if (image[y+1][x+-3] > cb) 
-				               if (image[y+2][x+-2] > cb) 
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else if (image[y+-3][x+1] < c_b) 
-				      if (image[y+-3][x+0] < c_b)
-				       if (image[y+-3][x+-1] < c_b)
-				        if (image[y+-2][x+-2] < c_b)
-				         if (image[y+-1][x+-3] < c_b)
-				          if (image[y+0][x+-3] < c_b)
-				           if (image[y+1][x+-3] < c_b)
-				            if (image[y+2][x+-2] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     if (image[y+0][x+3] > cb) 
-				      if (image[y+-1][x+3] > cb) 
-				       if (image[y+-2][x+2] > cb) 
-				        if (image[y+-3][x+1] > cb) 
-				         if (image[y+-3][x+0] > cb) 
-				          if (image[y+-3][x+-1] > cb) 
-				           if (image[y+-2][x+-2] > cb) 
-				            if (image[y+-1][x+-3] > cb) 
-				             if (image[y+0][x+-3] > cb) 
-				              if (image[y+1][x+-3] > cb) 
-				               if (image[y+2][x+-2] > cb) 
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				   else if (image[y+1][x+3] < c_b) 
-				    if (image[y+0][x+3] > cb) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-1][x+3] > cb) 
-				       if (image[y+-2][x+2] > cb) 
-				        if (image[y+-3][x+1] > cb) 
-				         if (image[y+-3][x+-1] > cb) 
-				          if (image[y+-2][x+-2] > cb) 
-				           if (image[y+-1][x+-3] > cb) 
-				            if (image[y+0][x+-3] > cb) 
-				             if (image[y+1][x+-3] > cb) 
-				              if (image[y+2][x+-2] > cb) 
-				               if (image[y+3][x+-1] > cb) 
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else if (image[y+-3][x+0] < c_b) 
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else if (image[y+0][x+3] < c_b) 
-				     if (image[y+-1][x+3] < c_b)
-				      if (image[y+-2][x+2] < c_b)
-				       if (image[y+-3][x+1] < c_b)
-				        if (image[y+-3][x+0] < c_b)
-				         if (image[y+-3][x+-1] < c_b)
-				          if (image[y+-2][x+-2] < c_b)
-				           if (image[y+-1][x+-3] < c_b)
-				            {;}
-				           else
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				          else
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				         else
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				        else
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				       else
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				      else
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				     else
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				    else
-				     if (image[y+-3][x+0] < c_b)
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				   else
-				    if (image[y+-3][x+1] > cb) 
-				     if (image[y+0][x+3] > cb) 
-				      if (image[y+-1][x+3] > cb) 
-				       if (image[y+-2][x+2] > cb) 
-				        if (image[y+-3][x+0] > cb) 
-				         if (image[y+-3][x+-1] > cb) 
-				          if (image[y+-2][x+-2] > cb) 
-				           if (image[y+-1][x+-3] > cb) 
-				            if (image[y+0][x+-3] > cb) 
-				             if (image[y+1][x+-3] > cb) 
-				              if (image[y+2][x+-2] > cb) 
-				               if (image[y+3][x+-1] > cb) 
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else if (image[y+-3][x+1] < c_b) 
-				     if (image[y+-3][x+0] < c_b)
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				  else
-				   if (image[y+-2][x+2] > cb) 
-				    if (image[y+0][x+3] > cb) 
-				     if (image[y+-1][x+3] > cb) 
-				      if (image[y+-3][x+1] > cb) 
-				       if (image[y+-3][x+0] > cb) 
-				        if (image[y+-3][x+-1] > cb) 
-				         if (image[y+-2][x+-2] > cb) 
-				          if (image[y+-1][x+-3] > cb) 
-				           if (image[y+0][x+-3] > cb) 
-				            if (image[y+1][x+-3] > cb) 
-				             if (image[y+2][x+-2] > cb) 
-				              if (image[y+1][x+3] > cb) 
-				               {;}
-				              else
-				               if (image[y+3][x+-1] > cb) 
-				                {;}
-				               else
-				                continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else if (image[y+-2][x+2] < c_b) 
-				    if (image[y+-3][x+1] < c_b)
-				     if (image[y+-3][x+0] < c_b)
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             if (image[y+1][x+3] < c_b)
-				              if (image[y+0][x+3] < c_b)
-				               if (image[y+-1][x+3] < c_b)
-				                {;}
-				               else
-				                continue;
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				 else
-				  if (image[y+-1][x+3] > cb) 
-				   if (image[y+0][x+3] > cb) 
-				    if (image[y+-2][x+2] > cb) 
-				     if (image[y+-3][x+1] > cb) 
-				      if (image[y+-3][x+0] > cb) 
-				       if (image[y+-3][x+-1] > cb) 
-				        if (image[y+-2][x+-2] > cb) 
-				         if (image[y+-1][x+-3] > cb) 
-				          if (image[y+0][x+-3] > cb) 
-				           if (image[y+1][x+-3] > cb) 
-				            if (image[y+1][x+3] > cb) 
-				             if (image[y+2][x+2] > cb) 
-				              {;}
-				             else
-				              if (image[y+2][x+-2] > cb) 
-				               {;}
-				              else
-				               continue;
-				            else
-				             if (image[y+2][x+-2] > cb) 
-				              if (image[y+3][x+-1] > cb) 
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else if (image[y+-1][x+3] < c_b) 
-				   if (image[y+-2][x+2] < c_b)
-				    if (image[y+-3][x+1] < c_b)
-				     if (image[y+-3][x+0] < c_b)
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+-3] < c_b)
-				           if (image[y+2][x+-2] < c_b)
-				            if (image[y+3][x+-1] < c_b)
-				             {;}
-				            else
-				             if (image[y+1][x+3] < c_b)
-				              if (image[y+0][x+3] < c_b)
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				           else
-				            if (image[y+2][x+2] < c_b)
-				             if (image[y+1][x+3] < c_b)
-				              if (image[y+0][x+3] < c_b)
-				               {;}
-				              else
-				               continue;
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else
-				   continue;
-				else
-				 if (image[y+0][x+3] > cb) 
-				  if (image[y+-1][x+3] > cb) 
-				   if (image[y+-2][x+2] > cb) 
-				    if (image[y+-3][x+1] > cb) 
-				     if (image[y+-3][x+0] > cb) 
-				      if (image[y+-3][x+-1] > cb) 
-				       if (image[y+-2][x+-2] > cb) 
-				        if (image[y+-1][x+-3] > cb) 
-				         if (image[y+0][x+-3] > cb) 
-				          if (image[y+1][x+3] > cb) 
-				           if (image[y+2][x+2] > cb) 
-				            if (image[y+3][x+1] > cb) 
-				             {;}
-				            else
-				             if (image[y+1][x+-3] > cb) 
-				              {;}
-				             else
-				              continue;
-				           else
-				            if (image[y+1][x+-3] > cb) 
-				             if (image[y+2][x+-2] > cb) 
-				              {;}
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           if (image[y+1][x+-3] > cb) 
-				            if (image[y+2][x+-2] > cb) 
-				             if (image[y+3][x+-1] > cb) 
-				              {;}
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else
-				   continue;
-				 else if (image[y+0][x+3] < c_b) 
-				  if (image[y+-1][x+3] < c_b)
-				   if (image[y+-2][x+2] < c_b)
-				    if (image[y+-3][x+1] < c_b)
-				     if (image[y+-3][x+0] < c_b)
-				      if (image[y+-3][x+-1] < c_b)
-				       if (image[y+-2][x+-2] < c_b)
-				        if (image[y+-1][x+-3] < c_b)
-				         if (image[y+0][x+-3] < c_b)
-				          if (image[y+1][x+3] < c_b)
-				           if (image[y+2][x+2] < c_b)
-				            if (image[y+3][x+1] < c_b)
-				             {;}
-				            else
-				             if (image[y+1][x+-3] < c_b)
-				              {;}
-				             else
-				              continue;
-				           else
-				            if (image[y+1][x+-3] < c_b)
-				             if (image[y+2][x+-2] < c_b)
-				              {;}
-				             else
-				              continue;
-				            else
-				             continue;
-				          else
-				           if (image[y+1][x+-3] < c_b)
-				            if (image[y+2][x+-2] < c_b)
-				             if (image[y+3][x+-1] < c_b)
-				              {;}
-				             else
-				              continue;
-				            else
-				             continue;
-				           else
-				            continue;
-				         else
-				          continue;
-				        else
-				         continue;
-				       else
-				        continue;
-				      else
-				       continue;
-				     else
-				      continue;
-				    else
-				     continue;
-				   else
-				    continue;
-				  else
-				   continue;
-				 else
-				  continue;
-				corners.add(new FeaturePoint(x, y));
-				count++;
-			}
+		return detect(flatten(image, w, h), w, h, w, threshold, N);
+	}
+	
+	/**
+	 * Keeps the N best corners of a list, sorted by score. When N is smaller than
+	 * the number of corners, a bounded heap picks them without sorting the whole list.
+	 * Corners with equal scores keep their relative order in both cases.
+	 * 
+	 * @param corners The scored corners.
+	 * @param N	The number of corners to keep, or -1 to keep all of them.
+	 * @return Returns the best corners, sorted by score.
+	 */
+	static List<FeaturePoint> best(List<FeaturePoint> corners, int N)
+	{
+		int count = corners.size();
+		if (N == -1 || N >= count) {
+			Collections.sort(corners, Collections.reverseOrder());
+			return corners;
 		}
+		if (N <= 0)
+			return new ArrayList<FeaturePoint>();
+		long[] heap = new long[N];
+		int size = 0;
 		for (int i = 0; i < count; ++i) {
-			int x = corners.get(i).x();
-			int y = corners.get(i).y();
-			corners.get(i).score(cornerScore(image, x, y));
+			size = CornerBuffer.offer(heap, size, N, CornerBuffer.rankKey(corners.get(i).score(), i));
 		}
-		Collections.sort(corners, Collections.reverseOrder());
-		if (N == -1)
-			return corners;
-		else 
-			return corners.subList(0, (N < count)? N : count);
+		Arrays.sort(heap, 0, size);
+		ArrayList<FeaturePoint> best = new ArrayList<FeaturePoint>(size);
+		for (int i = size - 1; i >= 0; --i) {
+			best.add(corners.get(CornerBuffer.rankIndex(heap[i])));
+		}
+		return best;
 	}
 	
 	/**
-	 * Calculates a score for a corner, using binary search.
+	 * Copies a two-dimensional image into a flat array of 8-bit intensities, the
+	 * input of the flat detectors, with a stride of w.
 	 * 
-	 * @param image A two dimensional integer array containing the image intensity values.
-	 * @param posx The x-coordinate of the corner.
-	 * @param posy The y-coordinate of the corner.
-	 * @return Returns an integer representing the corner score.
+	 * @param image A two-dimensional integer array representing the intensities of the
+	 * 				pixels in the image, indexed as image[y][x].
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @return Returns the flat image.
+	 * @throws IllegalArgumentException when an intensity is outside 0..255, which a
+	 * 				byte cannot hold.
 	 */
-	private static int cornerScore(int[][] image, int posx, int posy)
+	static byte[] flatten(int[][] image, int w, int h)
 	{
-		int bmin = 0;
-		int bmax = 255;
-		int b = (bmax + bmin)/2;
-	    
-		while (true)
-		{
-			if (isCorner(image, posx, posy, b)) {
-				bmin = b;
-			} else {
-				bmax = b;
+		byte[] flat = new byte[w * h];
+		for (int y = 0; y < h; ++y) {
+			int[] row = image[y];
+			for (int x = 0; x < w; ++x) {
+				int v = row[x];
+				if ((v & ~0xFF) != 0) {
+					throw new IllegalArgumentException("Intensity " + v + " at (" + x + "," + y + ") is outside 0..255");
+				}
+				flat[y * w + x] = (byte) v;
 			}
-	        
-			if (bmin == bmax - 1 || bmin == bmax) {
-				return bmin;
-			}
-
-			b = (bmin + bmax) / 2;
 		}
+		return flat;
 	}
 	
 	/**
-	 * Checks whether a (x,y) point is a corner.
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression 
+	 * algorithm on the results, to allow only maximal corners.
 	 * 
-	 * @param image A two-dimensional integer array representing the intensities of the
-	 * 				pixels in the image.
-	 * @param posx The x-coordinate of the point.
-	 * @param posy The y-coordinate of the point.
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
 	 * @param threshold A number denoting how much brighter or darker the pixels 
-	 * 				    surrounding the point in question should be in order to
+	 * 				    surrounding the pixel in question should be in order to
 	 * 					be considered a corner.
-	 * @return
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * 
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
 	 */
-	private static boolean isCorner(int[][] image, int posx, int posy, int threshold)
-	{		
-		int cb = image[posy][posx] + threshold;
-		int c_b = image[posy][posx] - threshold;
-		if (image[posy+3][posx+0] > cb) 
-		 if (image[posy+3][posx+1] > cb) 
-		  if (image[posy+2][posx+2] > cb) 
-		   if (image[posy+1][posx+3] > cb) 
-		    if (image[posy+0][posx+3] > cb) 
-		     if (image[posy+-1][posx+3] > cb) 
-		      if (image[posy+-2][posx+2] > cb) 
-		       if (image[posy+-3][posx+1] > cb) 
-		        if (image[posy+-3][posx+0] > cb) 
-		         if (image[posy+-3][posx+-1] > cb) 
-		          if (image[posy+-2][posx+-2] > cb) 
-		           if (image[posy+-1][posx+-3] > cb) 
-		            return true;
-		           else
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		          else
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		         else
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		        else
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		       else
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		      else
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		     else
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		    else if (image[posy+0][posx+3] < c_b) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else if (image[posy+-3][posx+0] < c_b) 
-		      if (image[posy+-1][posx+3] < c_b)
-		       if (image[posy+-2][posx+2] < c_b)
-		        if (image[posy+-3][posx+1] < c_b)
-		         if (image[posy+-3][posx+-1] < c_b)
-		          if (image[posy+-2][posx+-2] < c_b)
-		           if (image[posy+-1][posx+-3] < c_b)
-		            if (image[posy+0][posx+-3] < c_b)
-		             if (image[posy+1][posx+-3] < c_b)
-		              if (image[posy+2][posx+-2] < c_b)
-		               if (image[posy+3][posx+-1] < c_b)
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		   else if (image[posy+1][posx+3] < c_b) 
-		    if (image[posy+3][posx+-1] > cb) 
-		     if (image[posy+-3][posx+1] > cb) 
-		      if (image[posy+-3][posx+0] > cb) 
-		       if (image[posy+-3][posx+-1] > cb) 
-		        if (image[posy+-2][posx+-2] > cb) 
-		         if (image[posy+-1][posx+-3] > cb) 
-		          if (image[posy+0][posx+-3] > cb) 
-		           if (image[posy+1][posx+-3] > cb) 
-		            if (image[posy+2][posx+-2] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else if (image[posy+-3][posx+1] < c_b) 
-		      if (image[posy+0][posx+3] < c_b)
-		       if (image[posy+-1][posx+3] < c_b)
-		        if (image[posy+-2][posx+2] < c_b)
-		         if (image[posy+-3][posx+0] < c_b)
-		          if (image[posy+-3][posx+-1] < c_b)
-		           if (image[posy+-2][posx+-2] < c_b)
-		            if (image[posy+-1][posx+-3] < c_b)
-		             if (image[posy+0][posx+-3] < c_b)
-		              if (image[posy+1][posx+-3] < c_b)
-		               if (image[posy+2][posx+-2] < c_b)
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     if (image[posy+0][posx+3] < c_b)
-		      if (image[posy+-1][posx+3] < c_b)
-		       if (image[posy+-2][posx+2] < c_b)
-		        if (image[posy+-3][posx+1] < c_b)
-		         if (image[posy+-3][posx+0] < c_b)
-		          if (image[posy+-3][posx+-1] < c_b)
-		           if (image[posy+-2][posx+-2] < c_b)
-		            if (image[posy+-1][posx+-3] < c_b)
-		             if (image[posy+0][posx+-3] < c_b)
-		              if (image[posy+1][posx+-3] < c_b)
-		               if (image[posy+2][posx+-2] < c_b)
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		   else
-		    if (image[posy+-3][posx+1] > cb) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else if (image[posy+-3][posx+1] < c_b) 
-		     if (image[posy+0][posx+3] < c_b)
-		      if (image[posy+-1][posx+3] < c_b)
-		       if (image[posy+-2][posx+2] < c_b)
-		        if (image[posy+-3][posx+0] < c_b)
-		         if (image[posy+-3][posx+-1] < c_b)
-		          if (image[posy+-2][posx+-2] < c_b)
-		           if (image[posy+-1][posx+-3] < c_b)
-		            if (image[posy+0][posx+-3] < c_b)
-		             if (image[posy+1][posx+-3] < c_b)
-		              if (image[posy+2][posx+-2] < c_b)
-		               if (image[posy+3][posx+-1] < c_b)
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		  else if (image[posy+2][posx+2] < c_b) 
-		   if (image[posy+-2][posx+2] > cb) 
-		    if (image[posy+-3][posx+1] > cb) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] > cb) 
-		              if (image[posy+0][posx+3] > cb) 
-		               if (image[posy+-1][posx+3] > cb) 
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else if (image[posy+-2][posx+2] < c_b) 
-		    if (image[posy+0][posx+3] < c_b)
-		     if (image[posy+-1][posx+3] < c_b)
-		      if (image[posy+-3][posx+1] < c_b)
-		       if (image[posy+-3][posx+0] < c_b)
-		        if (image[posy+-3][posx+-1] < c_b)
-		         if (image[posy+-2][posx+-2] < c_b)
-		          if (image[posy+-1][posx+-3] < c_b)
-		           if (image[posy+0][posx+-3] < c_b)
-		            if (image[posy+1][posx+-3] < c_b)
-		             if (image[posy+1][posx+3] < c_b)
-		              return true;
-		             else
-		              if (image[posy+2][posx+-2] < c_b)
-		               if (image[posy+3][posx+-1] < c_b)
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else
-		   if (image[posy+-2][posx+2] > cb) 
-		    if (image[posy+-3][posx+1] > cb) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] > cb) 
-		              if (image[posy+0][posx+3] > cb) 
-		               if (image[posy+-1][posx+3] > cb) 
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else if (image[posy+-2][posx+2] < c_b) 
-		    if (image[posy+0][posx+3] < c_b)
-		     if (image[posy+-1][posx+3] < c_b)
-		      if (image[posy+-3][posx+1] < c_b)
-		       if (image[posy+-3][posx+0] < c_b)
-		        if (image[posy+-3][posx+-1] < c_b)
-		         if (image[posy+-2][posx+-2] < c_b)
-		          if (image[posy+-1][posx+-3] < c_b)
-		           if (image[posy+0][posx+-3] < c_b)
-		            if (image[posy+1][posx+-3] < c_b)
-		             if (image[posy+2][posx+-2] < c_b)
-		              if (image[posy+1][posx+3] < c_b)
-		               return true;
-		              else
-		               if (image[posy+3][posx+-1] < c_b)
-		                return true;
-		               else
-		                return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		 else if (image[posy+3][posx+1] < c_b) 
-		  if (image[posy+-1][posx+3] > cb) 
-		   if (image[posy+-2][posx+2] > cb) 
-		    if (image[posy+-3][posx+1] > cb) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] > cb) 
-		              if (image[posy+0][posx+3] > cb) 
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            if (image[posy+2][posx+2] > cb) 
-		             if (image[posy+1][posx+3] > cb) 
-		              if (image[posy+0][posx+3] > cb) 
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else if (image[posy+-1][posx+3] < c_b) 
-		   if (image[posy+0][posx+3] < c_b)
-		    if (image[posy+-2][posx+2] < c_b)
-		     if (image[posy+-3][posx+1] < c_b)
-		      if (image[posy+-3][posx+0] < c_b)
-		       if (image[posy+-3][posx+-1] < c_b)
-		        if (image[posy+-2][posx+-2] < c_b)
-		         if (image[posy+-1][posx+-3] < c_b)
-		          if (image[posy+0][posx+-3] < c_b)
-		           if (image[posy+1][posx+3] < c_b)
-		            if (image[posy+2][posx+2] < c_b)
-		             return true;
-		            else
-		             if (image[posy+1][posx+-3] < c_b)
-		              if (image[posy+2][posx+-2] < c_b)
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            if (image[posy+1][posx+-3] < c_b)
-		             if (image[posy+2][posx+-2] < c_b)
-		              if (image[posy+3][posx+-1] < c_b)
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else
-		   return false;
-		 else
-		  if (image[posy+-1][posx+3] > cb) 
-		   if (image[posy+-2][posx+2] > cb) 
-		    if (image[posy+-3][posx+1] > cb) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+-3] > cb) 
-		           if (image[posy+2][posx+-2] > cb) 
-		            if (image[posy+3][posx+-1] > cb) 
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] > cb) 
-		              if (image[posy+0][posx+3] > cb) 
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            if (image[posy+2][posx+2] > cb) 
-		             if (image[posy+1][posx+3] > cb) 
-		              if (image[posy+0][posx+3] > cb) 
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else if (image[posy+-1][posx+3] < c_b) 
-		   if (image[posy+0][posx+3] < c_b)
-		    if (image[posy+-2][posx+2] < c_b)
-		     if (image[posy+-3][posx+1] < c_b)
-		      if (image[posy+-3][posx+0] < c_b)
-		       if (image[posy+-3][posx+-1] < c_b)
-		        if (image[posy+-2][posx+-2] < c_b)
-		         if (image[posy+-1][posx+-3] < c_b)
-		          if (image[posy+0][posx+-3] < c_b)
-		           if (image[posy+1][posx+-3] < c_b)
-		            if (image[posy+1][posx+3] < c_b)
-		             if (image[posy+2][posx+2] < c_b)
-		              return true;
-		             else
-		              if (image[posy+2][posx+-2] < c_b)
-		               return true;
-		              else
-		               return false;
-		            else
-		             if (image[posy+2][posx+-2] < c_b)
-		              if (image[posy+3][posx+-1] < c_b)
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else
-		   return false;
-		else if (image[posy+3][posx+0] < c_b) 
-		 if (image[posy+3][posx+1] > cb) 
-		  if (image[posy+-1][posx+3] > cb) 
-		   if (image[posy+0][posx+3] > cb) 
-		    if (image[posy+-2][posx+2] > cb) 
-		     if (image[posy+-3][posx+1] > cb) 
-		      if (image[posy+-3][posx+0] > cb) 
-		       if (image[posy+-3][posx+-1] > cb) 
-		        if (image[posy+-2][posx+-2] > cb) 
-		         if (image[posy+-1][posx+-3] > cb) 
-		          if (image[posy+0][posx+-3] > cb) 
-		           if (image[posy+1][posx+3] > cb) 
-		            if (image[posy+2][posx+2] > cb) 
-		             return true;
-		            else
-		             if (image[posy+1][posx+-3] > cb) 
-		              if (image[posy+2][posx+-2] > cb) 
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            if (image[posy+1][posx+-3] > cb) 
-		             if (image[posy+2][posx+-2] > cb) 
-		              if (image[posy+3][posx+-1] > cb) 
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else if (image[posy+-1][posx+3] < c_b) 
-		   if (image[posy+-2][posx+2] < c_b)
-		    if (image[posy+-3][posx+1] < c_b)
-		     if (image[posy+-3][posx+0] < c_b)
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] < c_b)
-		              if (image[posy+0][posx+3] < c_b)
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            if (image[posy+2][posx+2] < c_b)
-		             if (image[posy+1][posx+3] < c_b)
-		              if (image[posy+0][posx+3] < c_b)
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else
-		   return false;
-		 else if (image[posy+3][posx+1] < c_b) 
-		  if (image[posy+2][posx+2] > cb) 
-		   if (image[posy+-2][posx+2] > cb) 
-		    if (image[posy+0][posx+3] > cb) 
-		     if (image[posy+-1][posx+3] > cb) 
-		      if (image[posy+-3][posx+1] > cb) 
-		       if (image[posy+-3][posx+0] > cb) 
-		        if (image[posy+-3][posx+-1] > cb) 
-		         if (image[posy+-2][posx+-2] > cb) 
-		          if (image[posy+-1][posx+-3] > cb) 
-		           if (image[posy+0][posx+-3] > cb) 
-		            if (image[posy+1][posx+-3] > cb) 
-		             if (image[posy+1][posx+3] > cb) 
-		              return true;
-		             else
-		              if (image[posy+2][posx+-2] > cb) 
-		               if (image[posy+3][posx+-1] > cb) 
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else if (image[posy+-2][posx+2] < c_b) 
-		    if (image[posy+-3][posx+1] < c_b)
-		     if (image[posy+-3][posx+0] < c_b)
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] < c_b)
-		              if (image[posy+0][posx+3] < c_b)
-		               if (image[posy+-1][posx+3] < c_b)
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else if (image[posy+2][posx+2] < c_b) 
-		   if (image[posy+1][posx+3] > cb) 
-		    if (image[posy+3][posx+-1] < c_b)
-		     if (image[posy+-3][posx+1] > cb) 
-		      if (image[posy+0][posx+3] > cb) 
-		       if (image[posy+-1][posx+3] > cb) 
-		        if (image[posy+-2][posx+2] > cb) 
-		         if (image[posy+-3][posx+0] > cb) 
-		          if (image[posy+-3][posx+-1] > cb) 
-		           if (image[posy+-2][posx+-2] > cb) 
-		            if (image[posy+-1][posx+-3] > cb) 
-		             if (image[posy+0][posx+-3] > cb) 
-		              if (image[posy+1][posx+-3] > cb) 
-		               if (image[posy+2][posx+-2] > cb) 
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else if (image[posy+-3][posx+1] < c_b) 
-		      if (image[posy+-3][posx+0] < c_b)
-		       if (image[posy+-3][posx+-1] < c_b)
-		        if (image[posy+-2][posx+-2] < c_b)
-		         if (image[posy+-1][posx+-3] < c_b)
-		          if (image[posy+0][posx+-3] < c_b)
-		           if (image[posy+1][posx+-3] < c_b)
-		            if (image[posy+2][posx+-2] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     if (image[posy+0][posx+3] > cb) 
-		      if (image[posy+-1][posx+3] > cb) 
-		       if (image[posy+-2][posx+2] > cb) 
-		        if (image[posy+-3][posx+1] > cb) 
-		         if (image[posy+-3][posx+0] > cb) 
-		          if (image[posy+-3][posx+-1] > cb) 
-		           if (image[posy+-2][posx+-2] > cb) 
-		            if (image[posy+-1][posx+-3] > cb) 
-		             if (image[posy+0][posx+-3] > cb) 
-		              if (image[posy+1][posx+-3] > cb) 
-		               if (image[posy+2][posx+-2] > cb) 
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		   else if (image[posy+1][posx+3] < c_b) 
-		    if (image[posy+0][posx+3] > cb) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-1][posx+3] > cb) 
-		       if (image[posy+-2][posx+2] > cb) 
-		        if (image[posy+-3][posx+1] > cb) 
-		         if (image[posy+-3][posx+-1] > cb) 
-		          if (image[posy+-2][posx+-2] > cb) 
-		           if (image[posy+-1][posx+-3] > cb) 
-		            if (image[posy+0][posx+-3] > cb) 
-		             if (image[posy+1][posx+-3] > cb) 
-		              if (image[posy+2][posx+-2] > cb) 
-		               if (image[posy+3][posx+-1] > cb) 
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else if (image[posy+-3][posx+0] < c_b) 
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else if (image[posy+0][posx+3] < c_b) 
-		     if (image[posy+-1][posx+3] < c_b)
-		      if (image[posy+-2][posx+2] < c_b)
-		       if (image[posy+-3][posx+1] < c_b)
-		        if (image[posy+-3][posx+0] < c_b)
-		         if (image[posy+-3][posx+-1] < c_b)
-		          if (image[posy+-2][posx+-2] < c_b)
-		           if (image[posy+-1][posx+-3] < c_b)
-		            return true;
-		           else
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		          else
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		         else
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		        else
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		       else
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		      else
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		     else
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		    else
-		     if (image[posy+-3][posx+0] < c_b)
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		   else
-		    if (image[posy+-3][posx+1] > cb) 
-		     if (image[posy+0][posx+3] > cb) 
-		      if (image[posy+-1][posx+3] > cb) 
-		       if (image[posy+-2][posx+2] > cb) 
-		        if (image[posy+-3][posx+0] > cb) 
-		         if (image[posy+-3][posx+-1] > cb) 
-		          if (image[posy+-2][posx+-2] > cb) 
-		           if (image[posy+-1][posx+-3] > cb) 
-		            if (image[posy+0][posx+-3] > cb) 
-		             if (image[posy+1][posx+-3] > cb) 
-		              if (image[posy+2][posx+-2] > cb) 
-		               if (image[posy+3][posx+-1] > cb) 
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else if (image[posy+-3][posx+1] < c_b) 
-		     if (image[posy+-3][posx+0] < c_b)
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		  else
-		   if (image[posy+-2][posx+2] > cb) 
-		    if (image[posy+0][posx+3] > cb) 
-		     if (image[posy+-1][posx+3] > cb) 
-		      if (image[posy+-3][posx+1] > cb) 
-		       if (image[posy+-3][posx+0] > cb) 
-		        if (image[posy+-3][posx+-1] > cb) 
-		         if (image[posy+-2][posx+-2] > cb) 
-		          if (image[posy+-1][posx+-3] > cb) 
-		           if (image[posy+0][posx+-3] > cb) 
-		            if (image[posy+1][posx+-3] > cb) 
-		             if (image[posy+2][posx+-2] > cb) 
-		              if (image[posy+1][posx+3] > cb) 
-		               return true;
-		              else
-		               if (image[posy+3][posx+-1] > cb) 
-		                return true;
-		               else
-		                return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else if (image[posy+-2][posx+2] < c_b) 
-		    if (image[posy+-3][posx+1] < c_b)
-		     if (image[posy+-3][posx+0] < c_b)
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] < c_b)
-		              if (image[posy+0][posx+3] < c_b)
-		               if (image[posy+-1][posx+3] < c_b)
-		                return true;
-		               else
-		                return false;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		 else
-		  if (image[posy+-1][posx+3] > cb) 
-		   if (image[posy+0][posx+3] > cb) 
-		    if (image[posy+-2][posx+2] > cb) 
-		     if (image[posy+-3][posx+1] > cb) 
-		      if (image[posy+-3][posx+0] > cb) 
-		       if (image[posy+-3][posx+-1] > cb) 
-		        if (image[posy+-2][posx+-2] > cb) 
-		         if (image[posy+-1][posx+-3] > cb) 
-		          if (image[posy+0][posx+-3] > cb) 
-		           if (image[posy+1][posx+-3] > cb) 
-		            if (image[posy+1][posx+3] > cb) 
-		             if (image[posy+2][posx+2] > cb) 
-		              return true;
-		             else
-		              if (image[posy+2][posx+-2] > cb) 
-		               return true;
-		              else
-		               return false;
-		            else
-		             if (image[posy+2][posx+-2] > cb) 
-		              if (image[posy+3][posx+-1] > cb) 
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else if (image[posy+-1][posx+3] < c_b) 
-		   if (image[posy+-2][posx+2] < c_b)
-		    if (image[posy+-3][posx+1] < c_b)
-		     if (image[posy+-3][posx+0] < c_b)
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+-3] < c_b)
-		           if (image[posy+2][posx+-2] < c_b)
-		            if (image[posy+3][posx+-1] < c_b)
-		             return true;
-		            else
-		             if (image[posy+1][posx+3] < c_b)
-		              if (image[posy+0][posx+3] < c_b)
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		           else
-		            if (image[posy+2][posx+2] < c_b)
-		             if (image[posy+1][posx+3] < c_b)
-		              if (image[posy+0][posx+3] < c_b)
-		               return true;
-		              else
-		               return false;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else
-		   return false;
-		else
-		 if (image[posy+0][posx+3] > cb) 
-		  if (image[posy+-1][posx+3] > cb) 
-		   if (image[posy+-2][posx+2] > cb) 
-		    if (image[posy+-3][posx+1] > cb) 
-		     if (image[posy+-3][posx+0] > cb) 
-		      if (image[posy+-3][posx+-1] > cb) 
-		       if (image[posy+-2][posx+-2] > cb) 
-		        if (image[posy+-1][posx+-3] > cb) 
-		         if (image[posy+0][posx+-3] > cb) 
-		          if (image[posy+1][posx+3] > cb) 
-		           if (image[posy+2][posx+2] > cb) 
-		            if (image[posy+3][posx+1] > cb) 
-		             return true;
-		            else
-		             if (image[posy+1][posx+-3] > cb) 
-		              return true;
-		             else
-		              return false;
-		           else
-		            if (image[posy+1][posx+-3] > cb) 
-		             if (image[posy+2][posx+-2] > cb) 
-		              return true;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           if (image[posy+1][posx+-3] > cb) 
-		            if (image[posy+2][posx+-2] > cb) 
-		             if (image[posy+3][posx+-1] > cb) 
-		              return true;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else
-		   return false;
-		 else if (image[posy+0][posx+3] < c_b) 
-		  if (image[posy+-1][posx+3] < c_b)
-		   if (image[posy+-2][posx+2] < c_b)
-		    if (image[posy+-3][posx+1] < c_b)
-		     if (image[posy+-3][posx+0] < c_b)
-		      if (image[posy+-3][posx+-1] < c_b)
-		       if (image[posy+-2][posx+-2] < c_b)
-		        if (image[posy+-1][posx+-3] < c_b)
-		         if (image[posy+0][posx+-3] < c_b)
-		          if (image[posy+1][posx+3] < c_b)
-		           if (image[posy+2][posx+2] < c_b)
-		            if (image[posy+3][posx+1] < c_b)
-		             return true;
-		            else
-		             if (image[posy+1][posx+-3] < c_b)
-		              return true;
-		             else
-		              return false;
-		           else
-		            if (image[posy+1][posx+-3] < c_b)
-		             if (image[posy+2][posx+-2] < c_b)
-		              return true;
-		             else
-		              return false;
-		            else
-		             return false;
-		          else
-		           if (image[posy+1][posx+-3] < c_b)
-		            if (image[posy+2][posx+-2] < c_b)
-		             if (image[posy+3][posx+-1] < c_b)
-		              return true;
-		             else
-		              return false;
-		            else
-		             return false;
-		           else
-		            return false;
-		         else
-		          return false;
-		        else
-		         return false;
-		       else
-		        return false;
-		      else
-		       return false;
-		     else
-		      return false;
-		    else
-		     return false;
-		   else
-		    return false;
-		  else
-		   return false;
-		 else
-		  return false;
-	}
-	
-	/**
-	 * A non-maximum suppression algorithm.
+	public static List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N) 
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detectWithNonMax(image, w, h, stride, threshold, N, corners);
+		return corners.toList();
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners) 
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, SINGLE_PASS_SCORE);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, scoring them with the given scorer.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, CornerScorer scorer) 
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, NonMaxSuppressor.shared());
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, using the given suppression engine. Reusing the engine
+	 * between frames avoids allocating its score image on every call; the overloads
+	 * without one use an engine per thread, kept between calls, for the same reason.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 * @param suppressor The non-maximum suppression engine.
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, CornerScorer scorer, NonMaxSuppressor suppressor) 
+	{
+		detectCorners(image, w, h, stride, threshold, corners, scorer);
+		suppressor.suppress(w, h, corners);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * 
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public static List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detect(image, w, h, stride, threshold, N, corners);
+		return corners.toList();
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners)
+	{
+		detect(image, w, h, stride, threshold, N, corners, SINGLE_PASS_SCORE);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, scoring them with the given scorer.
 	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
 	 * @param w The width of the image.
 	 * @param h The height of the image.
-	 * @param features A list of FeaturePoint objects, most likely calculated with
-	 *  			   one of the two detection functions.
-	 *  
-	 * @return Returns a list of FeaturePoint objects. Each object wraps a (x,y,score) tuple.
-	 */
-	private static List<FeaturePoint> nonMaxSuppression(int w, int h, List<FeaturePoint> features)
-	{
-		int[][] pixels = new int[h][w];
-		List<FeaturePoint> nonMaxFeatures = new ArrayList<FeaturePoint>();
-		for (int i = 0; i < features.size(); ++i) {
-			FeaturePoint fp = features.get(i);
-			pixels[fp.y()][fp.x()] = fp.score();
-		}
-		for (int i = 0; i < features.size(); ++i) {
-			FeaturePoint fp = features.get(i);
-			int y = fp.y();
-			int x = fp.x();
-			int score = fp.score();
-			if (score >= pixels[y-1][x+1] && score >= pixels[y-1][x] &&
-			    score >= pixels[y-1][x-1] && score >= pixels[y][x+1] && 
-			    score >= pixels[y][x-1] && score >= pixels[y+1][x+1] && 
-			    score >= pixels[y+1][x] && score >= pixels[y+1][x-1]) {
-				nonMaxFeatures.add(fp);
-			}
-		}
-		return nonMaxFeatures;
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank the corners.
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, CornerScorer scorer)
+	{
+		detectCorners(image, w, h, stride, threshold, corners, scorer);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners on a colour image by applying a non-maximum suppression
+	 * algorithm on the results. The image is converted to luma with the BT.601
+	 * weights row by row, as the detection reaches each row, so it is read a single
+	 * time and no grayscale copy of it is made.
+	 * 
+	 * @param image The image.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * 
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public static List<FeaturePoint> detectWithNonMax(BufferedImage image, int threshold, int N)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detectWithNonMax(image, Filter.Weights.BT601, threshold, N, corners);
+		return corners.toList();
+	}
+	
+	/**
+	 * Detect FAST corners on a colour image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results. The image is converted to luma with the BT.601
+	 * weights row by row, as the detection reaches each row, so it is read a single
+	 * time and no grayscale copy of it is made.
+	 * 
+	 * @param image The image.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * 
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public static List<FeaturePoint> detect(BufferedImage image, int threshold, int N)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detect(image, Filter.Weights.BT601, threshold, N, corners);
+		return corners.toList();
+	}
+	
+	/**
+	 * Detect FAST corners on a colour image by applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer. The corners are
+	 * the ones detectWithNonMax finds on Filter.luma of the image.
+	 * 
+	 * @param image The image.
+	 * @param weights The weights of the colours in the luma.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detectWithNonMax(BufferedImage image, Filter.Weights weights, int threshold, int N, CornerBuffer corners)
+	{
+		detect(image, weights, threshold, N, true, corners);
+	}
+	
+	/**
+	 * Detect FAST corners on a colour image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer. The corners are
+	 * the ones detect finds on Filter.luma of the image.
+	 * 
+	 * @param image The image.
+	 * @param weights The weights of the colours in the luma.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detect(BufferedImage image, Filter.Weights weights, int threshold, int N, CornerBuffer corners)
+	{
+		detect(image, weights, threshold, N, false, corners);
+	}
+	
+	/**
+	 * Detect FAST corners on the Y plane of a frame by applying a non-maximum 
+	 * suppression algorithm on the results. The plane is detected in place, so the
+	 * luma plane of an NV12 or I420 frame, or a window of a larger image, needs no copy.
+	 * 
+	 * @param image A byte array holding the plane, such as a whole YUV frame.
+	 * @param offset The index of the pixel (0,0) of the plane in the array. 
+	 * 				 The pixel (x,y) is at index offset + y * stride + x.
+	 * @param w The width of the plane.
+	 * @param h The height of the plane.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detectWithNonMax(byte[] image, int offset, int w, int h, int stride, int threshold, int N, 
+			CornerBuffer corners)
+	{
+		checkPlane(image.length, offset, w, h, stride);
+		detectCorners(image, offset, w, h, stride, threshold, corners, SINGLE_PASS_SCORE);
+		NonMaxSuppressor.shared().suppress(w, h, corners);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners on the Y plane of a frame WITHOUT applying a non-maximum 
+	 * suppression algorithm on the results. The plane is detected in place, so the
+	 * luma plane of an NV12 or I420 frame, or a window of a larger image, needs no copy.
+	 * 
+	 * @param image A byte array holding the plane, such as a whole YUV frame.
+	 * @param offset The index of the pixel (0,0) of the plane in the array. 
+	 * 				 The pixel (x,y) is at index offset + y * stride + x.
+	 * @param w The width of the plane.
+	 * @param h The height of the plane.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detect(byte[] image, int offset, int w, int h, int stride, int threshold, int N, 
+			CornerBuffer corners)
+	{
+		checkPlane(image.length, offset, w, h, stride);
+		detectCorners(image, offset, w, h, stride, threshold, corners, SINGLE_PASS_SCORE);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners on the Y plane of a frame held in a buffer by applying a 
+	 * non-maximum suppression algorithm on the results. A buffer backed by an array 
+	 * is detected in place. A direct or read-only buffer is copied: each row is read
+	 * once, with a single bulk get, into a band of 70 rows kept per thread, and the 
+	 * 64 rows in the middle of the band are detected there.
+	 * 
+	 * @param image A buffer holding the plane. The pixel (x,y) is at index 
+	 * 				image.position() + y * stride + x. The position is not changed.
+	 * @param w The width of the plane.
+	 * @param h The height of the plane.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detectWithNonMax(ByteBuffer image, int w, int h, int stride, int threshold, int N, 
+			CornerBuffer corners)
+	{
+		detect(image, w, h, stride, threshold, N, true, corners);
+	}
+	
+	/**
+	 * Detect FAST corners on the Y plane of a frame held in a buffer WITHOUT applying
+	 * a non-maximum suppression algorithm on the results. A buffer backed by an array 
+	 * is detected in place. A direct or read-only buffer is copied: each row is read
+	 * once, with a single bulk get, into a band of 70 rows kept per thread, and the 
+	 * 64 rows in the middle of the band are detected there.
+	 * 
+	 * @param image A buffer holding the plane. The pixel (x,y) is at index 
+	 * 				image.position() + y * stride + x. The position is not changed.
+	 * @param w The width of the plane.
+	 * @param h The height of the plane.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public static void detect(ByteBuffer image, int w, int h, int stride, int threshold, int N, CornerBuffer corners)
+	{
+		detect(image, w, h, stride, threshold, N, false, corners);
+	}
+	
+	private static void detect(ByteBuffer image, int w, int h, int stride, int threshold, int N, boolean nonMax, 
+			CornerBuffer corners)
+	{
+		int position = image.position();
+		checkPlane(image.limit() - position, 0, w, h, stride);
+		if (image.hasArray()) {
+			byte[] array = image.array();
+			int offset = image.arrayOffset() + position;
+			detectCorners(array, offset, w, h, stride, threshold, corners, SINGLE_PASS_SCORE);
+		} else {
+			detectCopied(image, position, w, h, stride, threshold, corners);
+		}
+		if (nonMax) {
+			NonMaxSuppressor.shared().suppress(w, h, corners);
+		}
+		best(corners, N);
+	}
+	
+	/**
+	 * Finds and scores the corners of a plane held in a buffer without an array, 
+	 * copying it a band of rows at a time into the scratch of the thread. A band 
+	 * holds the rows tested and the 3 rows above and below them, so the bands 
+	 * overlap by 6 rows and the rest of the plane is read once.
+	 */
+	private static void detectCopied(ByteBuffer image, int position, int w, int h, int stride, int threshold, 
+			CornerBuffer corners)
+	{
+		corners.clear();
+		BufferScratch scratch = BUFFER_SCRATCH.get();
+		byte[] band = scratch.pixels((BUFFER_BAND_ROWS + 6) * w);
+		CornerBuffer found = scratch.corners;
+		int[] pixel = circleOffsets(w);
+		long[] candidates = new long[(w + 63) >>> 6];
+		for (int y0 = 4; y0 < h - 4; y0 += BUFFER_BAND_ROWS) {
+			int y1 = Math.min(y0 + BUFFER_BAND_ROWS, h - 4);
+			for (int y = y0 - 3; y < y1 + 3; ++y) {
+				image.get(position + y * stride, band, (y - y0 + 3) * w, w);
+			}
+			// The pixel (x,y) of the plane is at offset + y * w in the band.
+			int offset = (3 - y0) * w;
+			found.clear();
+			ROWS.detectRect(band, offset, w, 4, y0, w - 4, y1, threshold, pixel, found, candidates);
+			SINGLE_PASS_SCORE.score(band, offset, w, threshold, found);
+			corners.addAll(found);
+		}
+	}
+	
+	/**
+	 * Score corners found on an image held in a buffer, such as a direct buffer shared
+	 * with native capture code. A buffer backed by an array is scored in place. Otherwise
+	 * the 7x7 neighbourhood of each corner is read with one bulk get per row into a
+	 * plane of patches kept per thread, and the scorer is run once on all of them. The
+	 * scorer must not read further than 3 pixels from a corner, as the scorers of this
+	 * package do. The suppression needs no pixels, so NonMaxSuppressor applies to the
+	 * scored corners as it is.
+	 * 
+	 * @param image A buffer holding the image. The pixel (x,y) is at index 
+	 * 				image.position() + y * stride + x. The position is not changed.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The threshold the corners were detected with.
+	 * @param corners The corners to score. Each one must be at least 3 pixels away from
+	 * 				  the edges of the image.
+	 * @param scorer The scorer.
+	 */
+	public static void score(ByteBuffer image, int stride, int threshold, CornerBuffer corners, CornerScorer scorer)
+	{
+		int position = image.position();
+		if (image.hasArray()) {
+			scorer.score(image.array(), image.arrayOffset() + position, stride, threshold, corners);
+			return;
+		}
+		// The patches are stacked into a single plane 7 pixels wide, patch i in
+		// the rows 7i to 7i+6, and scored by one call of the scorer.
+		int count = corners.size();
+		BufferScratch scratch = BUFFER_SCRATCH.get();
+		byte[] patches = scratch.pixels(count * 7 * 7);
+		CornerBuffer centres = scratch.corners;
+		centres.clear();
+		for (int i = 0; i < count; ++i) {
+			int p = position + (corners.y(i) - 3) * stride + corners.x(i) - 3;
+			for (int v = 0; v < 7; ++v) {
+				image.get(p + v * stride, patches, (i * 7 + v) * 7, 7);
+			}
+			centres.add(3, i * 7 + 3);
+		}
+		scorer.score(patches, 0, 7, threshold, centres);
+		for (int i = 0; i < count; ++i) {
+			corners.score(i, centres.score(i));
+		}
+	}
+	
+	/**
+	 * Checks that a plane of w by h pixels starting at an offset fits in an array
+	 * or a buffer of the given length.
+	 */
+	private static void checkPlane(int length, int offset, int w, int h, int stride)
+	{
+		if (w < 0 || h < 0 || stride < w || offset < 0 || 
+				(h > 0 && offset + (long) (h - 1) * stride + w > length)) {
+			throw new IllegalArgumentException("A plane of " + w + "x" + h + " with stride " + stride + 
+					" at " + offset + " does not fit in " + length + " bytes");
+		}
+	}
+	
+	/**
+	 * Converts and detects an image one row at a time through a stream, whose window
+	 * of 7 rows stays in cache while the rows are tested.
+	 */
+	private static void detect(BufferedImage image, Filter.Weights weights, int threshold, int N, boolean nonMax, CornerBuffer corners)
+	{
+		int h = image.getHeight();
+		FastStream stream = new FastStream(image.getWidth(), threshold, nonMax);
+		corners.clear();
+		for (int y = 0; y < h; ++y) {
+			stream.push(image, y, weights, corners);
+		}
+		stream.finish(corners);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results. The image is split into horizontal bands which are 
+	 * tested, scored and suppressed in parallel. The result is the same as the one of
+	 * the single-threaded detectWithNonMax.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, Executor executor) 
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, SINGLE_PASS_SCORE, executor);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, in parallel bands, scoring them with the given scorer.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, CornerScorer scorer, Executor executor) 
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, NonMaxSuppressor.shared(), executor);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, in parallel bands, using the given suppression engine.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					be considered a corner.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 * @param suppressor The non-maximum suppression engine.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, CornerScorer scorer, NonMaxSuppressor suppressor, Executor executor) 
+	{
+		detectWithNonMax(ROWS, image, w, h, stride, threshold, N, corners, scorer, suppressor, executor);
+	}
+	
+	/**
+	 * Detects and suppresses corners in parallel bands with a given corner test, for
+	 * Fast12 and FastN.
+	 */
+	static void detectWithNonMax(RowDetector rows, byte[] image, int w, int h, int stride, int threshold, int N, 
+			CornerBuffer corners, CornerScorer scorer, NonMaxSuppressor suppressor, Executor executor) 
+	{
+		CornerBuffer[] bands = detectBands(rows, image, w, h, stride, threshold, scorer, executor);
+		merge(bands, corners);
+		// Each band suppresses its own slice of the merged corners, reading their
+		// neighbours across the band boundaries.
+		int[] slices = new int[bands.length + 1];
+		for (int i = 0; i < bands.length; ++i) {
+			slices[i + 1] = slices[i] + bands[i].size();
+		}
+		suppressor.suppress(w, h, corners, slices, executor);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results. The image is split into horizontal bands which are 
+	 * tested and scored in parallel. The result is the same as the one of the 
+	 * single-threaded detect.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, Executor executor)
+	{
+		detect(image, w, h, stride, threshold, N, corners, SINGLE_PASS_SCORE, executor);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, in parallel bands, scoring them with the given scorer.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank the corners.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, CornerScorer scorer, Executor executor)
+	{
+		detect(ROWS, image, w, h, stride, threshold, N, corners, scorer, executor);
+	}
+	
+	/**
+	 * Detects corners in parallel bands with a given corner test, for Fast12 and FastN.
+	 */
+	static void detect(RowDetector rows, byte[] image, int w, int h, int stride, int threshold, int N, 
+			CornerBuffer corners, CornerScorer scorer, Executor executor)
+	{
+		merge(detectBands(rows, image, w, h, stride, threshold, scorer, executor), corners);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image by applying a non-maximum
+	 * suppression algorithm on the results. The corners are the ones a scan of the
+	 * whole image finds in the region.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param region The region to detect corners in.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public static List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, Region region) 
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, region);
+		return corners.toList();
+	}
+	
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image WITHOUT applying a 
+	 * non-maximum suppression algorithm on the results.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param region The region to detect corners in.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public static List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N, Region region) 
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detect(image, w, h, stride, threshold, N, corners, region);
+		return corners.toList();
+	}
+	
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image by applying a non-maximum
+	 * suppression algorithm on the results, writing them into a reusable buffer.
+	 * The corners are the ones a scan of the whole image finds in the region: the
+	 * region is grown by one pixel for the suppression, so that the corners just
+	 * outside it suppress the ones on its edges, and then clipped again.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param region The region to detect corners in.
+	 */
+	public static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, Region region) 
+	{
+		detectWithNonMax(ROWS, image, w, h, stride, threshold, N, corners, SINGLE_PASS_SCORE, region);
+	}
+	
+	/**
+	 * Detects and suppresses corners in a region with a given corner test, for Fast12
+	 * and FastN.
+	 */
+	static void detectWithNonMax(RowDetector rows, byte[] image, int w, int h, int stride, int threshold, int N, 
+			CornerBuffer corners, CornerScorer scorer, Region region) 
+	{
+		detectCorners(rows, image, w, h, stride, threshold, corners, scorer, region.dilate());
+		NonMaxSuppressor.shared().suppress(w, h, corners);
+		int kept = 0;
+		for (int i = 0; i < corners.size(); ++i) {
+			if (region.contains(corners.x(i), corners.y(i)))
+				corners.move(i, kept++);
+		}
+		corners.truncate(kept);
+		best(corners, N);
+	}
+	
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image WITHOUT applying a 
+	 * non-maximum suppression algorithm on the results, writing them into a
+	 * reusable buffer.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the pixel in question should be in order to
+	 * 					pass the detector's test.
+	 * @param N	The number of corners to return. To return all corners just 
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param region The region to detect corners in.
+	 */
+	public static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, Region region) 
+	{
+		detect(ROWS, image, w, h, stride, threshold, N, corners, SINGLE_PASS_SCORE, region);
+	}
+	
+	/**
+	 * Detects corners in a region with a given corner test, for Fast12 and FastN.
+	 */
+	static void detect(RowDetector rows, byte[] image, int w, int h, int stride, int threshold, int N, 
+			CornerBuffer corners, CornerScorer scorer, Region region) 
+	{
+		detectCorners(rows, image, w, h, stride, threshold, corners, scorer, region);
+		best(corners, N);
+	}
+	
+	/**
+	 * Finds and scores the corners in the spans of a region, in row-major order.
+	 */
+	private static void detectCorners(RowDetector rows, byte[] image, int w, int h, int stride, int threshold, 
+			CornerBuffer corners, CornerScorer scorer, Region region)
+	{
+		if (region.width() != w || region.height() != h) {
+			throw new IllegalArgumentException("The region is " + region.width() + "x" + region.height() + 
+					", not " + w + "x" + h + " as the image");
+		}
+		corners.clear();
+		int[] pixel = circleOffsets(stride);
+		long[] candidates = new long[(w + 71) >>> 6];
+		for (int y = 4; y < h - 4; ++y) {
+			for (int i = region.first(y); i < region.last(y); ++i) {
+				int x0 = Math.max(region.start(i), 4);
+				int x1 = Math.min(region.end(i), w - 4);
+				if (x0 < x1) {
+					rows.detectRect(image, 0, stride, x0, y, x1, y + 1, threshold, pixel, corners, candidates);
+				}
+			}
+		}
+		scorer.score(image, 0, stride, threshold, corners);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image at several thresholds by applying a 
+	 * non-maximum suppression algorithm on the results. The image is scanned, scored and
+	 * suppressed once, at the lowest threshold: since the score of a corner is the maximal
+	 * threshold at which it is still a corner, the corners at a higher threshold are the
+	 * ones scoring at least that threshold. A corner is only suppressed by a neighbour
+	 * scoring more, which is a corner at that threshold too, so the corners left by the
+	 * suppression at a higher threshold are the ones left at the lowest one scoring at
+	 * least that threshold, a prefix of them once sorted by score.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param thresholds The detection thresholds, in any order.
+	 * @param N	The number of corners to return for each threshold. To return all 
+	 * 			corners just use N=-1.
+	 * @return A list per threshold, in the order of thresholds, of the corners 
+	 * 		   detectWithNonMax returns for it. The lists are views of a single ArrayList
+	 * 		   and share its points.
+	 */
+	public static List<List<FeaturePoint>> detectWithNonMax(byte[] image, int w, int h, int stride, int[] thresholds, int N) 
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detectCorners(image, w, h, stride, min(thresholds), corners, SINGLE_PASS_SCORE);
+		NonMaxSuppressor.shared().suppress(w, h, corners);
+		return views(corners, thresholds, N);
+	}
+	
+	/**
+	 * Detect FAST corners on a flat 8-bit image at several thresholds WITHOUT applying
+	 * a non-maximum suppression algorithm on the results. The image is scanned and scored
+	 * once, at the lowest threshold, and the corners sorted by score: since the score of
+	 * a corner is the maximal threshold at which it is still a corner, the corners at a 
+	 * higher threshold are the ones scoring at least that threshold, a prefix of them.
+	 * 
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param thresholds The detection thresholds, in any order.
+	 * @param N	The number of corners to return for each threshold. To return all 
+	 * 			corners just use N=-1.
+	 * @return A list per threshold, in the order of thresholds, of the corners
+	 * 		   detect returns for it. The lists are views of a single ArrayList
+	 * 		   and share its points.
+	 */
+	public static List<List<FeaturePoint>> detect(byte[] image, int w, int h, int stride, int[] thresholds, int N) 
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detectCorners(image, w, h, stride, min(thresholds), corners, SINGLE_PASS_SCORE);
+		return views(corners, thresholds, N);
+	}
+	
+	/**
+	 * Sorts the corners found at the lowest threshold by score, and returns the N best
+	 * of the ones scoring at least each threshold, as views of a single list.
+	 */
+	private static List<List<FeaturePoint>> views(CornerBuffer corners, int[] thresholds, int N)
+	{
+		corners.sortByScore();
+		List<FeaturePoint> all = corners.toList();
+		List<List<FeaturePoint>> views = new ArrayList<List<FeaturePoint>>(thresholds.length);
+		for (int t : thresholds) {
+			// The first corner scoring below t.
+			int lo = 0;
+			int hi = corners.size();
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (corners.score(mid) >= t)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			views.add(all.subList(0, (N == -1)? lo : Math.max(0, Math.min(N, lo))));
+		}
+		return views;
+	}
+	
+	private static int min(int[] thresholds)
+	{
+		if (thresholds.length == 0) {
+			throw new IllegalArgumentException("No thresholds");
+		}
+		int min = thresholds[0];
+		for (int t : thresholds) {
+			min = Math.min(min, t);
+		}
+		return min;
+	}
+	
+	/**
+	 * Finds and scores the corners of a flat image in parallel, one buffer per band
+	 * of rows.
+	 * 
+	 * @return Returns the corners of each band, in row-major order.
+	 */
+	private static CornerBuffer[] detectBands(final RowDetector rows, final byte[] image, final int w, int h, final int stride, 
+			final int threshold, final CornerScorer scorer, Executor executor)
+	{
+		final int[] pixel = circleOffsets(stride);
+		int height = Math.max(h - 8, 0);
+		int parallelism = (executor instanceof ForkJoinPool)? 
+				((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+		// A few bands per thread evens out the load between flat and textured areas.
+		int count = Math.max(1, Math.min(parallelism * 4, height / MIN_BAND_ROWS));
+		CornerBuffer[] bands = new CornerBuffer[count];
+		Runnable[] tasks = new Runnable[count];
+		for (int i = 0; i < count; ++i) {
+			final CornerBuffer band = bands[i] = new CornerBuffer();
+			final int y0 = 4 + (int) ((long) height * i / count);
+			final int y1 = 4 + (int) ((long) height * (i + 1) / count);
+			tasks[i] = new Runnable() {
+				public void run() {
+					rows.detectRows(image, 0, w, stride, y0, y1, threshold, pixel, band);
+					scorer.score(image, 0, stride, threshold, band);
+				}
+			};
+		}
+		runAll(executor, tasks);
+		return bands;
+	}
+	
+	/**
+	 * Concatenates the corners of the bands into a single buffer.
+	 */
+	private static void merge(CornerBuffer[] bands, CornerBuffer corners)
+	{
+		corners.clear();
+		for (int i = 0; i < bands.length; ++i) {
+			corners.addAll(bands[i]);
+		}
+	}
+	
+	/**
+	 * Runs a set of tasks on an executor and waits for all of them to finish.
+	 * If a task fails, its exception is rethrown once all tasks have finished.
+	 */
+	static void runAll(Executor executor, Runnable[] tasks)
+	{
+		final CountDownLatch done = new CountDownLatch(tasks.length);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (int i = 0; i < tasks.length; ++i) {
+			final Runnable task = tasks[i];
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						task.run();
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the detection bands", e);
+		}
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		else if (t instanceof Error)
+			throw (Error) t;
+	}
+	
+	/**
+	 * Keeps the N best corners of a buffer, sorted by score.
+	 * 
+	 * @param corners The scored corners.
+	 * @param N	The number of corners to keep, or -1 to keep all of them.
+	 */
+	static void best(CornerBuffer corners, int N)
+	{
+		if (N == -1)
+			corners.sortByScore();
+		else
+			corners.selectBest(N);
+	}
+	
+	/**
+	 * Finds and scores the corners of a flat image, in row-major order.
+	 * 
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param corners The buffer to write the corners to. It is cleared first.
+	 * @param scorer The scorer used to score the corners.
+	 */
+	static void detectCorners(byte[] image, int w, int h, int stride, int threshold, CornerBuffer corners, CornerScorer scorer)
+	{
+		detectCorners(image, 0, w, h, stride, threshold, corners, scorer);
+	}
+	
+	/**
+	 * Finds and scores the corners of an image starting at an offset in its array,
+	 * in row-major order.
+	 */
+	static void detectCorners(byte[] image, int offset, int w, int h, int stride, int threshold, CornerBuffer corners, 
+			CornerScorer scorer)
+	{
+		corners.clear();
+		testRows(image, offset, w, stride, 4, h - 4, threshold, circleOffsets(stride), corners);
+		scorer.score(image, offset, stride, threshold, corners);
+	}
+	
+	/**
+	 * Runs the corner test on a band of rows with Fast12Vector when it is available,
+	 * and with the decision tree of detectRows otherwise. Both find the same corners.
+	 */
+	static void testRows(byte[] image, int offset, int w, int stride, int y0, int y1, int threshold, int[] pixel, 
+			CornerBuffer corners)
+	{
+		ROWS.detectRows(image, offset, w, stride, y0, y1, threshold, pixel, corners);
+	}
+	
+	private static RowDetector loadVectorRows()
+	{
+		// The incubator module is only resolved when asked for with --add-modules.
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return null;
+		try {
+			return (RowDetector) Class.forName("Fast12Vector").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Runs the corner test on a band of rows of a flat image and appends the
+	 * corners found to a buffer, in row-major order. The corners are not scored.
+	 * 
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param offset The index of the pixel (0,0) in the image array.
+	 * @param w The width of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param y0 The first row to test. Must be at least 4.
+	 * @param y1 The row after the last row to test. Must be at most h-4.
+	 * @param threshold The detection threshold.
+	 * @param pixel The circle offsets, as returned by circleOffsets.
+	 * @param corners The buffer to append the corners to.
+	 */
+	static void detectRows(byte[] image, int offset, int w, int stride, int y0, int y1, int threshold, int[] pixel, 
+			CornerBuffer corners)
+	{
+		detectRect(image, offset, stride, 4, y0, w - 4, y1, threshold, pixel, corners);
+	}
+	
+	/**
+	 * Runs the corner test on a rectangle of a flat image and appends the corners
+	 * found to a buffer, in row-major order. The corners are not scored.
+	 * Each row is first screened by compassRow, and only the pixels it keeps go
+	 * through the decision tree.
+	 * 
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param offset The index of the pixel (0,0) in the image array.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param x0 The first column to test. Must be at least 4.
+	 * @param y0 The first row to test. Must be at least 4.
+	 * @param x1 The column after the last column to test. Must be at most w-4.
+	 * @param y1 The row after the last row to test. Must be at most h-4.
+	 * @param threshold The detection threshold.
+	 * @param pixel The circle offsets, as returned by circleOffsets.
+	 * @param corners The buffer to append the corners to.
+	 */
+	static void detectRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel, 
+			CornerBuffer corners)
+	{
+		detectRect(image, offset, stride, x0, y0, x1, y1, threshold, pixel, corners, new long[(x1 - x0 + 71) >>> 6]);
+	}
+	
+	/**
+	 * Runs the corner test on a rectangle of a flat image, with a scratch bitmap
+	 * of at least (x1-x0+71)/64 words for the candidates of compassRow.
+	 */
+	static void detectRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel, 
+			CornerBuffer corners, long[] candidates)
+	{
+		if (x0 >= x1)
+			return;
+		// compassRow tests columns 4 to w-4 of a row, so the rectangle is passed
+		// as a row starting 4 pixels to its left.
+		int width = x1 - x0 + 8;
+		int words = (width + 63) >>> 6;
+		for (int y = y0; y < y1; ++y) {
+			int row = offset + y * stride;
+			compassRow(image, width, row + x0 - 4, threshold, pixel, candidates);
+			for (int word = 0; word < words; ++word) {
+				for (long bits = candidates[word]; bits != 0; bits &= bits - 1) {
+					int x = (word << 6) + Long.numberOfTrailingZeros(bits) + x0 - 4;
+					if (isCorner(image, row + x, pixel, threshold))
+						corners.add(x, y);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Marks the pixels of a row which pass the pre-test of Rosten's FAST: an arc of
+	 * 12 covers at least 3 of the 4 compass pixels of the circle (pixels 1, 5, 9 and 13
+	 * in his numbering, 0, 4, 8 and 12 here), so a pixel where fewer than 3 are brighter
+	 * and fewer than 3 are darker cannot be a corner. The test has no branches and runs
+	 * on 8 pixels at once, packed in the bytes of a long, and only the pixels it keeps
+	 * go through the decision tree.
+	 * 
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param w The width of the image.
+	 * @param row The index of the first pixel of the row in the image array.
+	 * @param threshold The detection threshold.
+	 * @param pixel The circle offsets, as returned by circleOffsets.
+	 * @param candidates A bitmap of at least (w+63)/64 words. On return, bit x is set
+	 * 					 when pixel x of the row, 4 <= x < w-4, passes the pre-test.
+	 */
+	static void compassRow(byte[] image, int w, int row, int threshold, int[] pixel, long[] candidates)
+	{
+		compassRow(image, w, row, threshold, 3, pixel, candidates);
+	}
+	
+	/**
+	 * Marks the pixels of a row where at least compass of the 4 compass pixels are
+	 * brighter, or at least compass are darker, as compassRow does for an arc of 12.
+	 * An arc of N pixels covers at least N/4 compass pixels, so that is the pre-test
+	 * of a detector for arcs of N.
+	 * 
+	 * @param compass The number of compass pixels a candidate needs, 0 to 4.
+	 */
+	static void compassRow(byte[] image, int w, int row, int threshold, int compass, int[] pixel, long[] candidates)
+	{
+		int o0 = pixel[0], o4 = pixel[4], o8 = pixel[8], o12 = pixel[12];
+		Arrays.fill(candidates, 0, (w + 63) >>> 6, 0L);
+		int x = 4;
+		int p = row + 4;
+		if (threshold >= 0 && threshold <= 255) {
+			// 8 pixels at a time, one per byte of a long.
+			long t = threshold * ONES;
+			for (; x + 8 <= w - 4; x += 8, p += 8) {
+				long c = (long) LONGS.get(image, p);
+				long cb = addSaturated(c, t);
+				long c_b = subtractSaturated(c, t);
+				long v0 = (long) LONGS.get(image, p + o0);
+				long v4 = (long) LONGS.get(image, p + o4);
+				long v8 = (long) LONGS.get(image, p + o8);
+				long v12 = (long) LONGS.get(image, p + o12);
+				long pass = atLeast(compass, below(cb, v0), below(cb, v4), below(cb, v8), below(cb, v12)) |
+				            atLeast(compass, below(v0, c_b), below(v4, c_b), below(v8, c_b), below(v12, c_b));
+				long bits = ((pass >>> 7) * GATHER) >>> 56;
+				candidates[x >>> 6] |= bits << x;
+				if ((x & 63) > 56)
+					candidates[(x >>> 6) + 1] |= bits >>> (64 - (x & 63));
+			}
+		}
+		for (; x < w - 4; ++x, ++p) {
+			int cb = (image[p] & 0xFF) + threshold;
+			int c_b = (image[p] & 0xFF) - threshold;
+			// (cb - v) >>> 31 is 1 when v > cb, and (v - c_b) >>> 31 when v < c_b.
+			int v0 = image[p + o0] & 0xFF;
+			int v4 = image[p + o4] & 0xFF;
+			int v8 = image[p + o8] & 0xFF;
+			int v12 = image[p + o12] & 0xFF;
+			int brighter = ((cb - v0) >>> 31) + ((cb - v4) >>> 31) + ((cb - v8) >>> 31) + ((cb - v12) >>> 31);
+			int darker = ((v0 - c_b) >>> 31) + ((v4 - c_b) >>> 31) + ((v8 - c_b) >>> 31) + ((v12 - c_b) >>> 31);
+			long pass = ((compass - 1 - brighter) >>> 31) | ((compass - 1 - darker) >>> 31);
+			candidates[x >>> 6] |= pass << x;
+		}
+	}
+	
+	/**
+	 * Adds the bytes of two longs, saturating at 255.
+	 */
+	private static long addSaturated(long a, long b)
+	{
+		long sum = ((a & ~HIGHS) + (b & ~HIGHS)) ^ ((a ^ b) & HIGHS);
+		long carry = ((a & b) | ((a | b) & ~sum)) & HIGHS;
+		return sum | ((carry >>> 7) * 0xFF);
+	}
+	
+	/**
+	 * Subtracts the bytes of two longs, saturating at 0.
+	 */
+	private static long subtractSaturated(long a, long b)
+	{
+		long difference = ((a | HIGHS) - (b & ~HIGHS)) ^ ((a ^ ~b) & HIGHS);
+		long borrow = ((~a & b) | (~(a ^ b) & difference)) & HIGHS;
+		return difference & ~((borrow >>> 7) * 0xFF);
+	}
+	
+	/**
+	 * Sets the top bit of each byte of a which is smaller than the same byte of b.
+	 */
+	private static long below(long a, long b)
+	{
+		long difference = ((a | HIGHS) - (b & ~HIGHS)) ^ ((a ^ ~b) & HIGHS);
+		return ((~a & b) | (~(a ^ b) & difference)) & HIGHS;
+	}
+	
+	/**
+	 * Sets the top bit of each byte where at least n of the 4 arguments have it set.
+	 */
+	private static long atLeast(int n, long a, long b, long c, long d)
+	{
+		switch (n) {
+		case 0:
+			return HIGHS;
+		case 1:
+			return a | b | c | d;
+		case 2:
+			return ((a | b) & (c | d)) | (a & b) | (c & d);
+		case 3:
+			return (a & b & (c | d)) | (c & d & (a | b));
+		default:
+			return a & b & c & d;
+		}
+	}
+	
+	/**
+	 * Computes the offsets of the 16 pixels on the Bresenham circle of radius 3 
+	 * relative to the centre pixel of a flat image, in the order used by the
+	 * decision trees.
+	 * 
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @return Returns an array of 16 offsets.
+	 */
+	static int[] circleOffsets(int stride)
+	{
+		return new int[] {
+			3 * stride, 3 * stride + 1, 2 * stride + 2, stride + 3,
+			3, -stride + 3, -2 * stride + 2, -3 * stride + 1,
+			-3 * stride, -3 * stride - 1, -2 * stride - 2, -stride - 3,
+			-3, stride - 3, 2 * stride - 2, 3 * stride - 1
+		};
+	}
+	
+	/**
+	 * Calculates a score for a corner of a flat image, using binary search.
+	 * 
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param p The index of the corner in the image array.
+	 * @param pixel The circle offsets, as returned by circleOffsets.
+	 * @return Returns an integer representing the corner score.
+	 */
+	private static int cornerScore(byte[] image, int p, int[] pixel)
+	{
+		int bmin = 0;
+		int bmax = 255;
+		int b = (bmax + bmin)/2;
+	    
+		while (true)
+		{
+			if (isCorner(image, p, pixel, b)) {
+				bmin = b;
+			} else {
+				bmax = b;
+			}
+	        
+			if (bmin == bmax - 1 || bmin == bmax) {
+				return bmin;
+			}
+
+			b = (bmin + bmax) / 2;
+		}
+	}
+	
+	/**
+	 * Checks whether a point of a flat image is a corner.
+	 * 
+	 * The decision tree is the one of Ed Rosten's FAST-12, written out by
+	 * FastTreeGenerator.emitMethods as the methods node0 onwards, 3 levels of the
+	 * tree each. In a single method the tree is far above the 8000 bytes of bytecode
+	 * above which HotSpot does not compile a method.
+	 * 
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param p The index of the point in the image array.
+	 * @param pixel The circle offsets, as returned by circleOffsets.
+	 * @param threshold A number denoting how much brighter or darker the pixels 
+	 * 				    surrounding the point in question should be in order to
+	 * 					be considered a corner.
+	 * @return
+	 */
+	static boolean isCorner(byte[] image, int p, int[] pixel, int threshold)
+	{
+		// pixel[3] is stride + 3, see circleOffsets.
+		int stride = pixel[3] - 3;
+		int cb = (image[p] & 0xFF) + threshold;
+		int c_b = (image[p] & 0xFF) - threshold;
+		return node0(image, p, stride, cb, c_b);
+	}
+
+	private static boolean node0(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride] & 0xFF) > cb) {
+			if ((image[p + 3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + 2 * stride + 2] & 0xFF) > cb) {
+					return node1(image, p, stride, cb, c_b);
+				} else if ((image[p + 2 * stride + 2] & 0xFF) < c_b) {
+					return node2(image, p, stride, cb, c_b);
+				} else {
+					return node3(image, p, stride, cb, c_b);
+				}
+			} else if ((image[p + 3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node4(image, p, stride, cb, c_b);
+				} else if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node5(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node4(image, p, stride, cb, c_b);
+				} else if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node6(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else if ((image[p + 3 * stride] & 0xFF) < c_b) {
+			if ((image[p + 3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node7(image, p, stride, cb, c_b);
+				} else if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node8(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else if ((image[p + 3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + 2 * stride + 2] & 0xFF) > cb) {
+					return node9(image, p, stride, cb, c_b);
+				} else if ((image[p + 2 * stride + 2] & 0xFF) < c_b) {
+					return node10(image, p, stride, cb, c_b);
+				} else {
+					return node11(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node12(image, p, stride, cb, c_b);
+				} else if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node8(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + 3] & 0xFF) > cb) {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node13(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else if ((image[p + 3] & 0xFF) < c_b) {
+				if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node14(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node1(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride + 3] & 0xFF) > cb) {
+			if ((image[p + 3] & 0xFF) > cb) {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node15(image, p, stride, cb, c_b);
+				} else {
+					return node16(image, p, stride, cb, c_b);
+				}
+			} else if ((image[p + 3] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node16(image, p, stride, cb, c_b);
+				} else if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node17(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node16(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else if ((image[p + stride + 3] & 0xFF) < c_b) {
+			if ((image[p + 3 * stride - 1] & 0xFF) > cb) {
+				if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+					return node18(image, p, stride, cb, c_b);
+				} else if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+					return node19(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				if ((image[p + 3] & 0xFF) < c_b) {
+					return node20(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node16(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + 3] & 0xFF) < c_b) {
+					return node21(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node2(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node22(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + 3] & 0xFF) < c_b) {
+				if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node23(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node3(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node22(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + 3] & 0xFF) < c_b) {
+				if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node24(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node4(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node25(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node5(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+					return node26(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node6(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+					return node27(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node7(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3] & 0xFF) > cb) {
+			if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+				if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+					return node28(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node8(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node29(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node9(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + 3] & 0xFF) > cb) {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node30(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node31(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node10(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride + 3] & 0xFF) > cb) {
+			if ((image[p + 3 * stride - 1] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+					return node32(image, p, stride, cb, c_b);
+				} else if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+					return node33(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				if ((image[p + 3] & 0xFF) > cb) {
+					return node34(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else if ((image[p + stride + 3] & 0xFF) < c_b) {
+			if ((image[p + 3] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node35(image, p, stride, cb, c_b);
+				} else if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node36(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else if ((image[p + 3] & 0xFF) < c_b) {
+				if ((image[p + -stride + 3] & 0xFF) < c_b) {
+					return node37(image, p, stride, cb, c_b);
+				} else {
+					return node36(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node36(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + 3] & 0xFF) > cb) {
+					return node38(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node36(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node11(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + 3] & 0xFF) > cb) {
+				if ((image[p + -stride + 3] & 0xFF) > cb) {
+					return node39(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node31(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node12(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3] & 0xFF) > cb) {
+			if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+				if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+					return node40(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node13(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node41(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node14(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node42(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node15(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node43(image, p, stride, cb, c_b);
+				} else {
+					return node44(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + -stride - 3] & 0xFF) > cb) {
+					return node44(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + -stride - 3] & 0xFF) > cb) {
+					return node44(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node16(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+			if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + -stride - 3] & 0xFF) > cb) {
+					return node44(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node17(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+					return node36(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node18(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride] & 0xFF) > cb) {
+			if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+				if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+					return node45(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node19(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3] & 0xFF) < c_b) {
+			if ((image[p + -stride + 3] & 0xFF) < c_b) {
+				if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+					return node33(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node20(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+					return node33(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node21(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node36(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node22(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+			if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + -stride - 3] & 0xFF) > cb) {
+					return node46(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node23(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+					return node47(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node24(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+					return node48(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node25(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+			if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + -stride - 3] & 0xFF) > cb) {
+					return node49(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node26(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+				if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+					return node50(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node27(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+				if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+					return node51(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node28(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride] & 0xFF) > cb) {
+			if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+				if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+					return node52(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node29(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + -stride - 3] & 0xFF) < c_b) {
+					return node53(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node30(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+			if ((image[p + -3 * stride] & 0xFF) > cb) {
+				if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+					return node54(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node31(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + -stride - 3] & 0xFF) < c_b) {
+					return node55(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node32(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3] & 0xFF) > cb) {
+			if ((image[p + -stride + 3] & 0xFF) > cb) {
+				if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+					return node18(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node33(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+				if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+					return node56(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node34(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) > cb) {
+			if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+				if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+					return node18(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node35(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) > cb) {
+			if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+				if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+					return node16(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node36(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + -stride - 3] & 0xFF) < c_b) {
+					return node57(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node37(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + -3 * stride + 1] & 0xFF) < c_b) {
+				if ((image[p + -3 * stride] & 0xFF) < c_b) {
+					return node58(image, p, stride, cb, c_b);
+				} else {
+					return node57(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + -stride - 3] & 0xFF) < c_b) {
+					return node57(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + -stride - 3] & 0xFF) < c_b) {
+					return node57(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node38(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) > cb) {
+			if ((image[p + -2 * stride + 2] & 0xFF) > cb) {
+				if ((image[p + -3 * stride] & 0xFF) > cb) {
+					return node16(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node39(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride + 1] & 0xFF) > cb) {
+			if ((image[p + -3 * stride] & 0xFF) > cb) {
+				if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+					return node59(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node40(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride] & 0xFF) > cb) {
+			if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+				if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+					return node60(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node41(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+			if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + -stride - 3] & 0xFF) > cb) {
+					return node61(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node42(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + -stride - 3] & 0xFF) < c_b) {
+					return node62(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node43(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) > cb) {
+			if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + -stride - 3] & 0xFF) > cb) {
+					return true;
+				} else {
+					return node63(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return node63(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + stride - 3] & 0xFF) > cb) {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return node63(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node44(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) > cb) {
+			if ((image[p + stride - 3] & 0xFF) > cb) {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return node63(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node45(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride - 3] & 0xFF) > cb) {
+			if ((image[p + -3] & 0xFF) > cb) {
+				if ((image[p + stride - 3] & 0xFF) > cb) {
+					return node64(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node46(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) > cb) {
+			if ((image[p + stride - 3] & 0xFF) > cb) {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return node65(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node47(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+			if ((image[p + -stride - 3] & 0xFF) < c_b) {
+				if ((image[p + -3] & 0xFF) < c_b) {
+					return node66(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node48(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+			if ((image[p + -stride - 3] & 0xFF) < c_b) {
+				if ((image[p + -3] & 0xFF) < c_b) {
+					return node67(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node49(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) > cb) {
+			if ((image[p + stride - 3] & 0xFF) > cb) {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return node68(image, p, stride, cb, c_b);
+				} else {
+					return node69(image, p, stride, cb, c_b);
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node50(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride - 3] & 0xFF) < c_b) {
+			if ((image[p + -3] & 0xFF) < c_b) {
+				if ((image[p + stride + 3] & 0xFF) < c_b) {
+					return node70(image, p, stride, cb, c_b);
+				} else {
+					return node71(image, p, stride, cb, c_b);
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node51(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride - 3] & 0xFF) < c_b) {
+			if ((image[p + -3] & 0xFF) < c_b) {
+				if ((image[p + stride - 3] & 0xFF) < c_b) {
+					return node72(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node52(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride - 3] & 0xFF) > cb) {
+			if ((image[p + -3] & 0xFF) > cb) {
+				if ((image[p + stride + 3] & 0xFF) > cb) {
+					return node73(image, p, stride, cb, c_b);
+				} else {
+					return node74(image, p, stride, cb, c_b);
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node53(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) < c_b) {
+			if ((image[p + stride - 3] & 0xFF) < c_b) {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return node75(image, p, stride, cb, c_b);
+				} else {
+					return node76(image, p, stride, cb, c_b);
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node54(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+			if ((image[p + -stride - 3] & 0xFF) > cb) {
+				if ((image[p + -3] & 0xFF) > cb) {
+					return node77(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node55(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) < c_b) {
+			if ((image[p + stride - 3] & 0xFF) < c_b) {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return node78(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node56(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride - 3] & 0xFF) < c_b) {
+			if ((image[p + -3] & 0xFF) < c_b) {
+				if ((image[p + stride - 3] & 0xFF) < c_b) {
+					return node79(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node57(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) < c_b) {
+			if ((image[p + stride - 3] & 0xFF) < c_b) {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return node80(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node58(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3 * stride - 1] & 0xFF) < c_b) {
+			if ((image[p + -2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + -stride - 3] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return node80(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return node80(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + stride - 3] & 0xFF) < c_b) {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return node80(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node59(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -2 * stride - 2] & 0xFF) > cb) {
+			if ((image[p + -stride - 3] & 0xFF) > cb) {
+				if ((image[p + -3] & 0xFF) > cb) {
+					return node81(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node60(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride - 3] & 0xFF) > cb) {
+			if ((image[p + -3] & 0xFF) > cb) {
+				if ((image[p + stride - 3] & 0xFF) > cb) {
+					return node82(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node61(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) > cb) {
+			if ((image[p + stride + 3] & 0xFF) > cb) {
+				if ((image[p + 2 * stride + 2] & 0xFF) > cb) {
+					return node83(image, p, stride, cb, c_b);
+				} else {
+					return node84(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + stride - 3] & 0xFF) > cb) {
+					return node85(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node62(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -3] & 0xFF) < c_b) {
+			if ((image[p + stride + 3] & 0xFF) < c_b) {
+				if ((image[p + 2 * stride + 2] & 0xFF) < c_b) {
+					return node86(image, p, stride, cb, c_b);
+				} else {
+					return node87(image, p, stride, cb, c_b);
+				}
+			} else {
+				if ((image[p + stride - 3] & 0xFF) < c_b) {
+					return node88(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node63(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride - 1] & 0xFF) > cb) {
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node64(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node65(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride - 1] & 0xFF) > cb) {
+			return true;
+		} else {
+			if ((image[p + stride + 3] & 0xFF) > cb) {
+				if ((image[p + 3] & 0xFF) > cb) {
+					return node89(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node66(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) < c_b) {
+			if ((image[p + stride + 3] & 0xFF) < c_b) {
+				return true;
+			} else {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return node80(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node67(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) < c_b) {
+			if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + stride + 3] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return node80(image, p, stride, cb, c_b);
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node68(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride - 1] & 0xFF) > cb) {
+			return true;
+		} else {
+			if ((image[p + stride + 3] & 0xFF) > cb) {
+				if ((image[p + 3] & 0xFF) > cb) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node69(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride + 2] & 0xFF) > cb) {
+			if ((image[p + stride + 3] & 0xFF) > cb) {
+				if ((image[p + 3] & 0xFF) > cb) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node70(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride + 2] & 0xFF) < c_b) {
+			return true;
+		} else {
+			if ((image[p + stride - 3] & 0xFF) < c_b) {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node71(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) < c_b) {
+			if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + 3 * stride - 1] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node72(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride + 3] & 0xFF) < c_b) {
+			if ((image[p + 2 * stride + 2] & 0xFF) < c_b) {
+				return true;
+			} else {
+				if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+				if ((image[p + 3 * stride - 1] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node73(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride + 2] & 0xFF) > cb) {
+			return true;
+		} else {
+			if ((image[p + stride - 3] & 0xFF) > cb) {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node74(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) > cb) {
+			if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + 3 * stride - 1] & 0xFF) > cb) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node75(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride - 1] & 0xFF) < c_b) {
+			return true;
+		} else {
+			if ((image[p + stride + 3] & 0xFF) < c_b) {
+				if ((image[p + 3] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node76(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride + 2] & 0xFF) < c_b) {
+			if ((image[p + stride + 3] & 0xFF) < c_b) {
+				if ((image[p + 3] & 0xFF) < c_b) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node77(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) > cb) {
+			if ((image[p + stride + 3] & 0xFF) > cb) {
+				return true;
+			} else {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return node63(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node78(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride - 1] & 0xFF) < c_b) {
+			return true;
+		} else {
+			if ((image[p + stride + 3] & 0xFF) < c_b) {
+				if ((image[p + 3] & 0xFF) < c_b) {
+					return node90(image, p, stride, cb, c_b);
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node79(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node80(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride - 1] & 0xFF) < c_b) {
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node81(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) > cb) {
+			if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + stride + 3] & 0xFF) > cb) {
+					return true;
+				} else {
+					return node63(image, p, stride, cb, c_b);
+				}
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node82(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride + 3] & 0xFF) > cb) {
+			if ((image[p + 2 * stride + 2] & 0xFF) > cb) {
+				return true;
+			} else {
+				if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+					return true;
+				} else {
+					return false;
+				}
+			}
+		} else {
+			if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+				if ((image[p + 3 * stride - 1] & 0xFF) > cb) {
+					return true;
+				} else {
+					return false;
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node83(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride + 1] & 0xFF) > cb) {
+			return true;
+		} else {
+			if ((image[p + stride - 3] & 0xFF) > cb) {
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node84(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) > cb) {
+			if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+				return true;
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node85(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride - 2] & 0xFF) > cb) {
+			if ((image[p + 3 * stride - 1] & 0xFF) > cb) {
+				return true;
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node86(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 3 * stride + 1] & 0xFF) < c_b) {
+			return true;
+		} else {
+			if ((image[p + stride - 3] & 0xFF) < c_b) {
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private static boolean node87(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + stride - 3] & 0xFF) < c_b) {
+			if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+				return true;
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node88(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + 2 * stride - 2] & 0xFF) < c_b) {
+			if ((image[p + 3 * stride - 1] & 0xFF) < c_b) {
+				return true;
+			} else {
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node89(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) > cb) {
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private static boolean node90(byte[] image, int p, int stride, int cb, int c_b)
+	{
+		if ((image[p + -stride + 3] & 0xFF) < c_b) {
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Pixels and corners copied out of a buffer without an array.
+	 */
+	private static final class BufferScratch {
+		private byte[] pixels = new byte[0];
+		final CornerBuffer corners = new CornerBuffer();
+
+		/**
+		 * The pixel scratch, grown to at least the given length.
+		 */
+		byte[] pixels(int length)
+		{
+			if (pixels.length < length) {
+				pixels = new byte[length];
+			}
+			return pixels;
+		}
 	}
 }
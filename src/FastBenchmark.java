@@ -10,8 +10,10 @@ import javax.imageio.ImageIO;
 
 public class FastBenchmark {
 
-	private int[][] pixels = null;
+	private byte[] pixels = null;
 	BufferedImage img = null;
+	// The luma plane the corners are detected on, as an RGB image to draw them on.
+	private BufferedImage gray = null;
 	private int w = 0;
 	private int h = 0;
 	private String IMG_PATH = null;
@@ -35,6 +37,8 @@ public class FastBenchmark {
 	public void run(boolean createImages) throws IOException
 	{
 		setUp();
+		if (createImages)
+			gray = lumaImage();
 		_run(createImages);
 	}
 	
@@ -51,20 +55,12 @@ public class FastBenchmark {
 		// the directory to create the grayscale "cornered" images.
 		IMG_NAME = "";
 		
-		// Load image and turn it to gray.
+		// Load image and turn it into the flat array of 8-bit intensities
+		// the FAST detector takes.
 		img = ImageIO.read(new File(IMG_PATH + IMG_NAME));
-		img = Filter.grayScale(img);
 		w = img.getWidth();
 		h = img.getHeight();
-		pixels = new int[h][w];
-		
-		// The FAST detector takes a two-dimensional integer array,
-		// so we need to convert it.
-		for (int y = 0; y < h; ++y) {
-			for (int x = 0; x < w; ++x) {
-				pixels[y][x] = img.getRGB(x, y) & 0xFF;
-			}
-		}
+		pixels = Filter.luma(img);
 	}
 	
 	/**
@@ -86,7 +82,7 @@ public class FastBenchmark {
 			// without a cap on the number of returned corners so we can
 			// compare the results.
 			long start = System.currentTimeMillis();
-			List<FeaturePoint> f1 = Fast12.detectWithNonMax(pixels, w, h, t, -1);
+			List<FeaturePoint> f1 = Fast12.detectWithNonMax(pixels, w, h, w, t, -1);
 			long stop = System.currentTimeMillis();
 			if (createImages)
 				drawImage(f1, t, "with_nonmax");
@@ -94,18 +90,37 @@ public class FastBenchmark {
 			
 			// Run without non-maximum suppression.
 			start = System.currentTimeMillis();
-			List<FeaturePoint> f2 = Fast12.detect(pixels, w, h, t, -1);
+			List<FeaturePoint> f2 = Fast12.detect(pixels, w, h, w, t, -1);
 			stop = System.currentTimeMillis();
 			if (createImages)
 				drawImage(f2, t,"without_nonmax");
 			System.out.println("Without non-max: B=" + t + ": N=" + f2.size() + ": T=" + (stop - start));
 			System.out.println("-----------------------");
 		}
+		
+		// Run all thresholds at once, scanning the image a single time.
+		long start = System.currentTimeMillis();
+		List<List<FeaturePoint>> all = Fast12.detect(pixels, w, h, w, thresholds, -1);
+		long stop = System.currentTimeMillis();
+		for (int i = 0; i < thresholds.length; ++i) {
+			System.out.println("All thresholds without non-max: B=" + thresholds[i] + ": N=" + all.get(i).size());
+		}
+		System.out.println("All thresholds without non-max: T=" + (stop - start));
+		
+		// Convert and detect in a single pass over the colour image, with the luma
+		// conversion included in the time.
+		for (int t : thresholds) {
+			start = System.currentTimeMillis();
+			List<FeaturePoint> f = Fast12.detectWithNonMax(img, t, -1);
+			stop = System.currentTimeMillis();
+			System.out.println("Fused with non-max: B=" + t + ": N=" + f.size() + ": T=" + (stop - start));
+		}
 	}
 	
 	/**
 	 * Creates a grayscale image with the corners painted in red, for visualising
-	 * algorithm.
+	 * algorithm. The corners are drawn on a copy of the luma plane they were
+	 * detected on, so that every image shows its own corners only.
 	 * @param featurePoints The feature points.
 	 * @param t The threshold to append to the image name.
 	 * @param extra Extra information to append to the image name, mostly used,
@@ -115,16 +130,46 @@ public class FastBenchmark {
 	private void drawImage(List<FeaturePoint> featurePoints, int t, String extra) throws IOException
 	{
 		//Draw up some rectangles to have something to demonstrate.
-		Graphics2D g2 = img.createGraphics();
+		BufferedImage marked = copy(gray);
+		Graphics2D g2 = marked.createGraphics();
 		g2.setColor(new Color(250, 0 ,0));
 		int count = featurePoints.size();
 		for (int i = 0; i < count; ++i) {
 			FeaturePoint p = featurePoints.get(i);
 			g2.drawRect(p.x(), p.y(), 1, 1);
 		}
+		g2.dispose();
 		String[] tokens = IMG_NAME.split("\\.");
 		File out = new File(IMG_PATH + tokens[0] + "_" + extra + "_t" + t + "." + tokens[tokens.length-1]);
-		ImageIO.write(img, "jpg", out);
+		ImageIO.write(marked, "jpg", out);
+	}
+	
+	/**
+	 * Creates an RGB image of the luma plane, each pixel gray at its luma.
+	 */
+	private BufferedImage lumaImage()
+	{
+		BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		int[] row = new int[w];
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				row[x] = (pixels[y * w + x] & 0xFF) * 0x010101;
+			}
+			image.setRGB(0, y, w, 1, row, 0, w);
+		}
+		return image;
+	}
+	
+	/**
+	 * Copies an image into a new RGB image.
+	 */
+	private static BufferedImage copy(BufferedImage image)
+	{
+		BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2 = copy.createGraphics();
+		g2.drawImage(image, 0, 0, null);
+		g2.dispose();
+		return copy;
 	}
 }
 
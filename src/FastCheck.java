@@ -0,0 +1,210 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that the faster paths of Fast12 find exactly what the plain ones find, on
+ * random and structured images:
+ * + the single-pass score against the binary search, at every threshold 1 to 254,
+ * + the parallel detectors against the sequential ones,
+ * + region detection against a scan of the whole image clipped to the region,
+ * + the multi-threshold detectors against one detection per threshold.
+ *
+ * Every difference is printed, and the exit status is 1 if there are any.
+ *
+ * Usage: java FastCheck
+ *
+ */
+public class FastCheck {
+
+	private static final int[] SIZES = {64, 48, 97, 61, 333, 101, 640, 480};
+	private static final String[] KINDS = {"noise", "checkerboard", "waves", "salt and pepper", "steps"};
+
+	private final Random random = new Random(2011);
+	private int checks = 0;
+	private int failures = 0;
+
+	public static void main(String[] args)
+	{
+		FastCheck check = new FastCheck();
+		check.run();
+		System.out.println(check.checks + " checks, " + check.failures + " failed");
+		if (check.failures > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Run all the checks.
+	 */
+	public void run()
+	{
+		for (int i = 0; i < SIZES.length; i += 2) {
+			int w = SIZES[i];
+			int h = SIZES[i + 1];
+			for (int kind = 0; kind < KINDS.length; ++kind) {
+				byte[] image = image(kind, w, h);
+				String name = KINDS[kind] + " " + w + "x" + h;
+				// The score does not depend on the size of the image, so the small
+				// ones are enough for all 254 thresholds.
+				if (w * h < 10000)
+					checkScores(image, w, h, name);
+				checkParallel(image, w, h, name);
+				checkRegions(image, w, h, name);
+				checkThresholds(image, w, h, name);
+			}
+		}
+	}
+
+	/**
+	 * The single-pass score of every corner equals its score by binary search.
+	 */
+	private void checkScores(byte[] image, int w, int h, String name)
+	{
+		CornerBuffer single = new CornerBuffer();
+		CornerBuffer binary = new CornerBuffer();
+		for (int t = 1; t <= 254; ++t) {
+			Fast12.detectCorners(image, w, h, w, t, single, Fast12.SINGLE_PASS_SCORE);
+			Fast12.detectCorners(image, w, h, w, t, binary, Fast12.BINARY_SEARCH_SCORE);
+			check(single.toList(), binary.toList(), "single-pass score, " + name + ", t=" + t);
+		}
+	}
+
+	/**
+	 * The parallel detectors find the corners the sequential ones find, in the same order.
+	 */
+	private void checkParallel(byte[] image, int w, int h, String name)
+	{
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		CornerBuffer sequential = new CornerBuffer();
+		CornerBuffer parallel = new CornerBuffer();
+		for (int t : new int[]{5, 20, 40}) {
+			for (int N : new int[]{-1, 100}) {
+				Fast12.detectWithNonMax(image, w, h, w, t, N, sequential);
+				Fast12.detectWithNonMax(image, w, h, w, t, N, parallel, pool);
+				check(sequential.toList(), parallel.toList(), "parallel with non-max, " + name + ", t=" + t + ", N=" + N);
+				Fast12.detect(image, w, h, w, t, N, sequential);
+				Fast12.detect(image, w, h, w, t, N, parallel, pool);
+				check(sequential.toList(), parallel.toList(), "parallel, " + name + ", t=" + t + ", N=" + N);
+			}
+		}
+	}
+
+	/**
+	 * Detection in a region finds the corners a scan of the whole image finds in it.
+	 */
+	private void checkRegions(byte[] image, int w, int h, String name)
+	{
+		List<Region> regions = new ArrayList<Region>();
+		regions.add(Region.ofRectangles(w, h, new Rectangle(0, 0, w, h)));
+		regions.add(Region.ofRectangles(w, h, new Rectangle(w / 4, h / 5, w / 2, h / 2),
+				new Rectangle(-3, h / 2, 11, h), new Rectangle(w / 3, h / 3, w, 7)));
+		int words = (w + 63) >>> 6;
+		long[] mask = new long[h * words];
+		for (int i = 0; i < mask.length; ++i) {
+			mask[i] = random.nextLong() & random.nextLong();
+		}
+		regions.add(Region.ofMask(w, h, mask));
+
+		for (int r = 0; r < regions.size(); ++r) {
+			Region region = regions.get(r);
+			for (int t : new int[]{5, 20, 40}) {
+				String what = name + ", region " + r + ", t=" + t;
+				check(clip(Fast12.detectWithNonMax(image, w, h, w, t, -1), region),
+						Fast12.detectWithNonMax(image, w, h, w, t, -1, region), "region with non-max, " + what);
+				check(clip(Fast12.detect(image, w, h, w, t, -1), region),
+						Fast12.detect(image, w, h, w, t, -1, region), "region, " + what);
+			}
+		}
+	}
+
+	/**
+	 * Detection at several thresholds at once finds what one detection per threshold finds.
+	 */
+	private void checkThresholds(byte[] image, int w, int h, String name)
+	{
+		int[] thresholds = {30, 10, 22, 60, 10};
+		for (int N : new int[]{-1, 0, 50}) {
+			List<List<FeaturePoint>> nonMax = Fast12.detectWithNonMax(image, w, h, w, thresholds, N);
+			List<List<FeaturePoint>> all = Fast12.detect(image, w, h, w, thresholds, N);
+			for (int i = 0; i < thresholds.length; ++i) {
+				String what = name + ", t=" + thresholds[i] + ", N=" + N;
+				check(Fast12.detectWithNonMax(image, w, h, w, thresholds[i], N), nonMax.get(i),
+						"thresholds with non-max, " + what);
+				check(Fast12.detect(image, w, h, w, thresholds[i], N), all.get(i), "thresholds, " + what);
+			}
+		}
+	}
+
+	/**
+	 * The corners of a list in a region, in their order in the list.
+	 */
+	private static List<FeaturePoint> clip(List<FeaturePoint> corners, Region region)
+	{
+		List<FeaturePoint> clipped = new ArrayList<FeaturePoint>();
+		for (FeaturePoint p : corners) {
+			if (region.contains(p.x(), p.y()))
+				clipped.add(p);
+		}
+		return clipped;
+	}
+
+	/**
+	 * Compares the expected corners with the ones found, position, score and order,
+	 * and prints the first difference.
+	 */
+	private void check(List<FeaturePoint> expected, List<FeaturePoint> found, String what)
+	{
+		++checks;
+		int count = Math.min(expected.size(), found.size());
+		for (int i = 0; i < count; ++i) {
+			FeaturePoint e = expected.get(i);
+			FeaturePoint f = found.get(i);
+			if (e.x() != f.x() || e.y() != f.y() || e.score() != f.score()) {
+				fail(what + ": corner " + i + " is (" + f.x() + "," + f.y() + ") scoring " + f.score() +
+						", not (" + e.x() + "," + e.y() + ") scoring " + e.score());
+				return;
+			}
+		}
+		if (expected.size() != found.size())
+			fail(what + ": " + found.size() + " corners, not " + expected.size());
+	}
+
+	private void fail(String message)
+	{
+		++failures;
+		System.out.println("FAILED " + message);
+	}
+
+	/**
+	 * Creates a test image of one of the KINDS, with a stride of w.
+	 */
+	private byte[] image(int kind, int w, int h)
+	{
+		byte[] image = new byte[w * h];
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				int v;
+				switch (kind) {
+				case 0:
+					v = random.nextInt(256);
+					break;
+				case 1:
+					v = (((x / 7) + (y / 5)) % 2 == 0? 40 : 200) + random.nextInt(21) - 10;
+					break;
+				case 2:
+					v = (int) (128 + 100 * Math.sin(x * 0.3) * Math.cos(y * 0.2)) + random.nextInt(9) - 4;
+					break;
+				case 3:
+					v = (random.nextInt(4) == 0)? 255 : (random.nextInt(3) == 0)? 0 : 128;
+					break;
+				default:
+					v = (x * 255 / w) / 32 * 32 + (y * 255 / h) / 64 * 16;
+				}
+				image[y * w + x] = (byte) Math.max(0, Math.min(255, v));
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,235 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FAST12 detection with corners spread evenly over the image, as trackers need. The
+ * image is divided into a grid of cells and each cell keeps at most a given number of
+ * corners, its best ones, instead of the N best of the whole image, which cluster on
+ * textured areas.
+ *
+ * The corners are offered to a bounded heap per cell as they are scored, so there is
+ * no sort of all the corners, only of the few each cell keeps. A cell which does not
+ * fill its budget at the detection threshold is detected again on its own, halving the
+ * threshold each time, down to a minimum threshold. The corners of such a cell are
+ * suppressed among themselves only.
+ *
+ * The engine keeps its buffers between calls. It is not thread-safe. Use one per thread.
+ *
+ */
+public class FastGrid {
+
+	private final int columns;
+	private final int rows;
+	private final int perCell;
+	private final int minThreshold;
+	private final CornerScorer scorer;
+	private final long[][] heaps;
+	private final int[] counts;
+	private final CornerBuffer found = new CornerBuffer();
+	private final CornerBuffer relaxed = new CornerBuffer();
+	private final NonMaxSuppressor suppressor = new NonMaxSuppressor();
+
+	/**
+	 * Create a grid detector scoring with Fast12.SINGLE_PASS_SCORE.
+	 * @param columns The number of columns of cells.
+	 * @param rows The number of rows of cells.
+	 * @param perCell The number of corners each cell keeps.
+	 * @param minThreshold The lowest threshold a cell is detected again with when it
+	 * 					   does not fill its budget. A value not below the detection
+	 * 					   threshold turns this off.
+	 */
+	public FastGrid(int columns, int rows, int perCell, int minThreshold)
+	{
+		this(columns, rows, perCell, minThreshold, Fast12.SINGLE_PASS_SCORE);
+	}
+
+	/**
+	 * Create a grid detector.
+	 * @param columns The number of columns of cells.
+	 * @param rows The number of rows of cells.
+	 * @param perCell The number of corners each cell keeps.
+	 * @param minThreshold The lowest threshold a cell is detected again with when it
+	 * 					   does not fill its budget. A value not below the detection
+	 * 					   threshold turns this off.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 */
+	public FastGrid(int columns, int rows, int perCell, int minThreshold, CornerScorer scorer)
+	{
+		if (columns < 1 || rows < 1) {
+			throw new IllegalArgumentException("A grid needs at least one cell, not " + columns + "x" + rows);
+		}
+		if (perCell < 1) {
+			throw new IllegalArgumentException("Each cell must keep at least one corner, not " + perCell);
+		}
+		this.columns = columns;
+		this.rows = rows;
+		this.perCell = perCell;
+		this.minThreshold = minThreshold;
+		this.scorer = scorer;
+		this.heaps = new long[columns * rows][perCell];
+		this.counts = new int[columns * rows];
+	}
+
+	public int columns()
+	{
+		return columns;
+	}
+
+	public int rows()
+	{
+		return rows;
+	}
+
+	public int perCell()
+	{
+		return perCell;
+	}
+
+	/**
+	 * Detect FAST corners in every cell by applying a non-maximum suppression
+	 * algorithm on the results.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @return A list of FeaturePoint objects, cell by cell in row-major order, and
+	 * 		   sorted by score within each cell.
+	 */
+	public List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detect(image, w, h, stride, threshold, true, corners);
+		return corners.toList();
+	}
+
+	/**
+	 * Detect FAST corners in every cell WITHOUT applying a non-maximum suppression
+	 * algorithm on the results.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @return A list of FeaturePoint objects, cell by cell in row-major order, and
+	 * 		   sorted by score within each cell.
+	 */
+	public List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detect(image, w, h, stride, threshold, false, corners);
+		return corners.toList();
+	}
+
+	/**
+	 * Detect FAST corners in every cell by applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners cell by cell in row-major
+	 * 				  order, and sorted by score within each cell.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, CornerBuffer corners)
+	{
+		detect(image, w, h, stride, threshold, true, corners);
+	}
+
+	/**
+	 * Detect FAST corners in every cell WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners cell by cell in row-major
+	 * 				  order, and sorted by score within each cell.
+	 */
+	public void detect(byte[] image, int w, int h, int stride, int threshold, CornerBuffer corners)
+	{
+		detect(image, w, h, stride, threshold, false, corners);
+	}
+
+	private void detect(byte[] image, int w, int h, int stride, int threshold, boolean nonMax, CornerBuffer corners)
+	{
+		int[] pixel = Fast12.circleOffsets(stride);
+		found.clear();
+		Fast12.testRows(image, 0, w, stride, 4, h - 4, threshold, pixel, found);
+		scorer.score(image, 0, stride, threshold, found);
+		if (nonMax) {
+			suppressor.suppress(w, h, found);
+		}
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < found.size(); ++i) {
+			int cell = (int) ((long) found.y(i) * rows / h) * columns + (int) ((long) found.x(i) * columns / w);
+			counts[cell] = CornerBuffer.offer(heaps[cell], counts[cell], perCell, CornerBuffer.rankKey(found.score(i), i));
+		}
+
+		for (int cell = 0; cell < counts.length; ++cell) {
+			int t = threshold;
+			while (counts[cell] < perCell && t > minThreshold && t > 0) {
+				t = Math.max(minThreshold, t / 2);
+				relax(image, w, h, stride, t, nonMax, pixel, cell);
+			}
+		}
+
+		corners.clear();
+		for (int cell = 0; cell < counts.length; ++cell) {
+			long[] heap = heaps[cell];
+			Arrays.sort(heap, 0, counts[cell]);
+			for (int j = counts[cell] - 1; j >= 0; --j) {
+				int i = CornerBuffer.rankIndex(heap[j]);
+				corners.add(found.x(i), found.y(i), found.score(i));
+			}
+		}
+	}
+
+	/**
+	 * Detects the corners of a cell again at a lower threshold, replacing its heap.
+	 */
+	private void relax(byte[] image, int w, int h, int stride, int threshold, boolean nonMax, int[] pixel, int cell)
+	{
+		int cx = cell % columns;
+		int cy = cell / columns;
+		int x0 = Math.max(4, start(cx, columns, w));
+		int x1 = Math.min(w - 4, start(cx + 1, columns, w));
+		int y0 = Math.max(4, start(cy, rows, h));
+		int y1 = Math.min(h - 4, start(cy + 1, rows, h));
+		relaxed.clear();
+		if (y0 < y1) {
+			Fast12.detectRect(image, 0, stride, x0, y0, x1, y1, threshold, pixel, relaxed);
+		}
+		scorer.score(image, 0, stride, threshold, relaxed);
+		if (nonMax) {
+			suppressor.suppress(w, h, relaxed);
+		}
+		int first = found.size();
+		found.addAll(relaxed);
+		counts[cell] = 0;
+		for (int j = 0; j < relaxed.size(); ++j) {
+			counts[cell] = CornerBuffer.offer(heaps[cell], counts[cell], perCell, CornerBuffer.rankKey(relaxed.score(j), first + j));
+		}
+	}
+
+	/**
+	 * The first pixel of cell c of n along a side of the given size, so that pixel p
+	 * belongs to cell p*n/size.
+	 */
+	private static int start(int c, int n, int size)
+	{
+		return (int) (((long) c * size + n - 1) / n);
+	}
+}
@@ -0,0 +1,563 @@
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The FAST-N corner detector for any arc length N: a point is a corner when N
+ * contiguous pixels of the circle of 16 around it are all brighter than the centre
+ * plus the threshold, or all darker than the centre minus the threshold. Fast12
+ * answers the same question for N=12 with its decision tree; this class tests the
+ * circle directly and backs the Fast9, Fast10, Fast11 and Fast16 detectors.
+ *
+ * Each row is first screened by Fast12.compassRow, 8 pixels at a time, keeping the
+ * pixels where at least N/4 of the 4 compass points of the circle are brighter or
+ * darker, since an arc of N pixels covers that many of them. The survivors get a
+ * 16-bit mask of their brighter and darker pixels, looked up in a table of the masks
+ * holding an arc of N. Scoring, suppression, the parallel bands and the regions are
+ * shared with Fast12.
+ *
+ */
+public class FastN {
+
+	// The shared detectors of FastN.of, by arc length.
+	private static final FastN[] SHARED = new FastN[17];
+
+	private final int arc;
+	private final int compass;
+	private final long[] arcs = new long[1 << 10];
+	private final ArcScorer scorer;
+
+	/**
+	 * The segment test, run by the parallel and region detection of Fast12.
+	 */
+	private final RowDetector rows = new RowDetector() {
+		public void detectRows(byte[] image, int offset, int w, int stride, int y0, int y1, int threshold, int[] pixel, 
+				CornerBuffer corners)
+		{
+			detectRect(image, offset, stride, 4, y0, w - 4, y1, threshold, pixel, corners, new long[(w + 63) >>> 6]);
+		}
+
+		public void detectRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel, 
+				CornerBuffer corners, long[] candidates)
+		{
+			FastN.this.detectRect(image, offset, stride, x0, y0, x1, y1, threshold, pixel, corners, candidates);
+		}
+	};
+
+	/**
+	 * Create a detector.
+	 * @param arc The number of contiguous circle pixels a corner needs, 1 to 16.
+	 */
+	public FastN(int arc)
+	{
+		this.scorer = new ArcScorer(arc);
+		this.arc = arc;
+		this.compass = arc / 4;
+		for (int mask = 0; mask < 1 << 16; ++mask) {
+			if (hasArc(mask, arc)) {
+				arcs[mask >>> 6] |= 1L << (mask & 63);
+			}
+		}
+	}
+
+	/**
+	 * The shared detector for an arc length, created on first use. Detectors keep no
+	 * state between calls, so one can be used by any number of threads.
+	 * @param arc The number of contiguous circle pixels a corner needs, 1 to 16.
+	 */
+	public static FastN of(int arc)
+	{
+		if (arc < 1 || arc > 16) {
+			throw new IllegalArgumentException("The arc length must be in [1, 16], not " + arc);
+		}
+		synchronized (SHARED) {
+			if (SHARED[arc] == null) {
+				SHARED[arc] = new FastN(arc);
+			}
+			return SHARED[arc];
+		}
+	}
+
+	private static boolean hasArc(int mask, int arc)
+	{
+		// Unrolling the circle twice turns wrapped arcs into plain runs of bits.
+		int circle = mask | (mask << 16);
+		int run = circle;
+		for (int i = 1; i < arc; ++i) {
+			run &= circle >>> i;
+		}
+		return (run & 0xFFFF) != 0;
+	}
+
+	public int arc()
+	{
+		return arc;
+	}
+
+	/**
+	 * The scorer giving the maximal threshold at which a point passes this test.
+	 */
+	public CornerScorer scorer()
+	{
+		return scorer;
+	}
+
+	/**
+	 * Detect FAST corners by applying a non-maximum suppression algorithm on the results.
+	 *
+	 * @param image A two-dimensional integer array representing the intensities of the
+	 * 				pixels in the image. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 * @throws IllegalArgumentException when an intensity is outside 0..255.
+	 */
+	public List<FeaturePoint> detectWithNonMax(int[][] image, int w, int h, int threshold, int N)
+	{
+		return detectWithNonMax(Fast12.flatten(image, w, h), w, h, w, threshold, N);
+	}
+
+	/**
+	 * Detect FAST corners WITHOUT applying a non-maximum suppression algorithm on the results.
+	 *
+	 * @param image A two-dimensional integer array representing the intensities of the
+	 * 				pixels in the image. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 * @throws IllegalArgumentException when an intensity is outside 0..255.
+	 */
+	public List<FeaturePoint> detect(int[][] image, int w, int h, int threshold, int N)
+	{
+		return detect(Fast12.flatten(image, w, h), w, h, w, threshold, N);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detectWithNonMax(image, w, h, stride, threshold, N, corners);
+		return corners.toList();
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detect(image, w, h, stride, threshold, N, corners);
+		return corners.toList();
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners)
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, with the given scorer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			CornerScorer scorer)
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, NonMaxSuppressor.shared());
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, with the given scorer and suppression engine.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 * @param suppressor The non-maximum suppression engine.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			CornerScorer scorer, NonMaxSuppressor suppressor)
+	{
+		detectCorners(image, w, h, stride, threshold, corners, scorer);
+		suppressor.suppress(w, h, corners);
+		Fast12.best(corners, N);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, writing them into a reusable buffer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners)
+	{
+		detect(image, w, h, stride, threshold, N, corners, scorer);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, with the given scorer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank the corners.
+	 */
+	public void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, CornerScorer scorer)
+	{
+		detectCorners(image, w, h, stride, threshold, corners, scorer);
+		Fast12.best(corners, N);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results. The image is split into horizontal bands which are
+	 * tested and scored in parallel. The result is the same as the one of the
+	 * single-threaded detectWithNonMax.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			Executor executor)
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, executor);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, in parallel bands, with the given scorer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			CornerScorer scorer, Executor executor)
+	{
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, scorer, NonMaxSuppressor.shared(), executor);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image by applying a non-maximum suppression
+	 * algorithm on the results, in parallel bands, with the given scorer and
+	 * suppression engine.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank and suppress the corners.
+	 * @param suppressor The non-maximum suppression engine.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			CornerScorer scorer, NonMaxSuppressor suppressor, Executor executor)
+	{
+		Fast12.detectWithNonMax(rows, image, w, h, stride, threshold, N, corners, scorer, suppressor, executor);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results. The image is split into horizontal bands which are
+	 * tested and scored in parallel. The result is the same as the one of the
+	 * single-threaded detect.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, Executor executor)
+	{
+		detect(image, w, h, stride, threshold, N, corners, scorer, executor);
+	}
+
+	/**
+	 * Detect FAST corners on a flat 8-bit image WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, in parallel bands, with the given scorer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param scorer The scorer used to rank the corners.
+	 * @param executor The executor running the bands, typically a ForkJoinPool.
+	 */
+	public void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			CornerScorer scorer, Executor executor)
+	{
+		Fast12.detect(rows, image, w, h, stride, threshold, N, corners, scorer, executor);
+	}
+
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image by applying a non-maximum
+	 * suppression algorithm on the results. The corners are the ones a scan of the
+	 * whole image finds in the region.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param region The region to detect corners in.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, Region region)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detectWithNonMax(image, w, h, stride, threshold, N, corners, region);
+		return corners.toList();
+	}
+
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image WITHOUT applying a
+	 * non-maximum suppression algorithm on the results.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param region The region to detect corners in.
+	 * @return A list of FeaturePoint objects. Each object wraps an (x,y,score) tuple.
+	 */
+	public List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N, Region region)
+	{
+		CornerBuffer corners = new CornerBuffer();
+		detect(image, w, h, stride, threshold, N, corners, region);
+		return corners.toList();
+	}
+
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image by applying a non-maximum
+	 * suppression algorithm on the results, writing them into a reusable buffer.
+	 * The corners are the ones a scan of the whole image finds in the region.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param region The region to detect corners in.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners,
+			Region region)
+	{
+		Fast12.detectWithNonMax(rows, image, w, h, stride, threshold, N, corners, scorer, region);
+	}
+
+	/**
+	 * Detect FAST corners in a region of a flat 8-bit image WITHOUT applying a
+	 * non-maximum suppression algorithm on the results, writing them into a
+	 * reusable buffer.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 * @param region The region to detect corners in.
+	 */
+	public void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners, Region region)
+	{
+		Fast12.detect(rows, image, w, h, stride, threshold, N, corners, scorer, region);
+	}
+
+	private void detectCorners(byte[] image, int w, int h, int stride, int threshold, CornerBuffer corners, CornerScorer scorer)
+	{
+		corners.clear();
+		rows.detectRows(image, 0, w, stride, 4, h - 4, threshold, Fast12.circleOffsets(stride), corners);
+		scorer.score(image, 0, stride, threshold, corners);
+	}
+
+	/**
+	 * Runs the segment test on a rectangle of a flat image and appends the corners
+	 * found to a buffer, in row-major order. The corners are not scored. Each row is
+	 * first screened by Fast12.compassRow, and only the pixels it keeps are tested.
+	 *
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param offset The index of the pixel (0,0) in the image array.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param x0 The first column to test. Must be at least 4.
+	 * @param y0 The first row to test. Must be at least 4.
+	 * @param x1 The column after the last column to test. Must be at most w-4.
+	 * @param y1 The row after the last row to test. Must be at most h-4.
+	 * @param threshold The detection threshold.
+	 * @param pixel The circle offsets, as returned by Fast12.circleOffsets.
+	 * @param corners The buffer to append the corners to.
+	 * @param candidates A scratch bitmap of at least (x1-x0+71)/64 words.
+	 */
+	private void detectRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel,
+			CornerBuffer corners, long[] candidates)
+	{
+		if (x0 >= x1)
+			return;
+		// compassRow tests columns 4 to w-4 of a row, so the rectangle is passed
+		// as a row starting 4 pixels to its left.
+		int width = x1 - x0 + 8;
+		int words = (width + 63) >>> 6;
+		for (int y = y0; y < y1; ++y) {
+			int row = offset + y * stride;
+			Fast12.compassRow(image, width, row + x0 - 4, threshold, compass, pixel, candidates);
+			for (int word = 0; word < words; ++word) {
+				for (long bits = candidates[word]; bits != 0; bits &= bits - 1) {
+					int x = (word << 6) + Long.numberOfTrailingZeros(bits) + x0 - 4;
+					if (isCorner(image, row + x, pixel, threshold))
+						corners.add(x, y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether a point passes the segment test, looking the masks of its brighter and
+	 * darker circle pixels up in the table of the masks holding an arc.
+	 */
+	private boolean isCorner(byte[] image, int p, int[] pixel, int threshold)
+	{
+		int cb = (image[p] & 0xFF) + threshold;
+		int c_b = (image[p] & 0xFF) - threshold;
+		// (cb - v) >>> 31 is 1 when v > cb, and (v - c_b) >>> 31 when v < c_b.
+		int bright = 0;
+		int dark = 0;
+		for (int k = 0; k < 16; ++k) {
+			int v = image[p + pixel[k]] & 0xFF;
+			bright |= ((cb - v) >>> 31) << k;
+			dark |= ((v - c_b) >>> 31) << k;
+		}
+		return ((arcs[bright >>> 6] >>> bright) & 1) != 0 || ((arcs[dark >>> 6] >>> dark) & 1) != 0;
+	}
+}
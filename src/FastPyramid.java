@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Multi-scale FAST12 detection. The image is scaled down into a pyramid of levels,
+ * each smaller than the one before by a constant factor, and corners are detected on
+ * every level, so that corners of large structures, which are smooth at full resolution,
+ * are found on the smaller levels.
+ *
+ * The corners are returned as FeaturePoint objects tagged with the level they were found
+ * on, their coordinates mapped back to the full resolution image. The N best corners are
+ * picked over all levels.
+ *
+ * Each level is computed from the one before it with bilinear interpolation in 8-bit
+ * fixed point, every level being built before any is detected. The levels are kept
+ * between calls and reused as long as the images are not larger, as are the corner
+ * buffers and the suppression engines of the levels.
+ * Given an executor, the levels are detected in parallel.
+ *
+ * A pyramid is not thread-safe. Use one per thread.
+ *
+ */
+public class FastPyramid {
+
+	private final int levels;
+	private final float scale;
+	private final int[] widths;
+	private final int[] heights;
+	private final byte[][] images;
+	private final CornerBuffer[] corners;
+	private final NonMaxSuppressor[] suppressors;
+	private int[] columns = new int[0];
+	private int[] weights = new int[0];
+
+	/**
+	 * Create a pyramid.
+	 * @param levels The number of levels, including the full resolution image.
+	 * @param scale The factor by which each level is smaller than the one before, such
+	 * 				as 2 for octaves or 1.2 for finer steps. Must be greater than 1.
+	 */
+	public FastPyramid(int levels, float scale)
+	{
+		if (levels < 1) {
+			throw new IllegalArgumentException("A pyramid needs at least one level, not " + levels);
+		}
+		if (!(scale > 1)) {
+			throw new IllegalArgumentException("The scale factor must be greater than 1, not " + scale);
+		}
+		this.levels = levels;
+		this.scale = scale;
+		this.widths = new int[levels];
+		this.heights = new int[levels];
+		this.images = new byte[levels][];
+		this.corners = new CornerBuffer[levels];
+		this.suppressors = new NonMaxSuppressor[levels];
+		for (int i = 0; i < levels; ++i) {
+			corners[i] = new CornerBuffer();
+			suppressors[i] = new NonMaxSuppressor();
+		}
+	}
+
+	public int levels()
+	{
+		return levels;
+	}
+
+	public float scale()
+	{
+		return scale;
+	}
+
+	/**
+	 * The width of a level for the last image detected.
+	 */
+	public int width(int level)
+	{
+		return widths[level];
+	}
+
+	/**
+	 * The height of a level for the last image detected.
+	 */
+	public int height(int level)
+	{
+		return heights[level];
+	}
+
+	/**
+	 * Detect FAST corners on all levels by applying a non-maximum suppression algorithm
+	 * on the results of each level.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return, over all levels. To return all corners
+	 * 			just use N=-1.
+	 * @return A list of FeaturePoint objects sorted by score, tagged with their level.
+	 */
+	public List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N)
+	{
+		return detect(image, w, h, stride, threshold, N, true, null);
+	}
+
+	/**
+	 * Detect FAST corners on all levels WITHOUT applying a non-maximum suppression
+	 * algorithm on the results.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return, over all levels. To return all corners
+	 * 			just use N=-1.
+	 * @return A list of FeaturePoint objects sorted by score, tagged with their level.
+	 */
+	public List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N)
+	{
+		return detect(image, w, h, stride, threshold, N, false, null);
+	}
+
+	/**
+	 * Detect FAST corners on all levels in parallel by applying a non-maximum
+	 * suppression algorithm on the results of each level.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return, over all levels. To return all corners
+	 * 			just use N=-1.
+	 * @param executor The executor detecting the levels.
+	 * @return A list of FeaturePoint objects sorted by score, tagged with their level.
+	 */
+	public List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, Executor executor)
+	{
+		return detect(image, w, h, stride, threshold, N, true, executor);
+	}
+
+	/**
+	 * Detect FAST corners on all levels in parallel WITHOUT applying a non-maximum
+	 * suppression algorithm on the results.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The detection threshold.
+	 * @param N	The number of corners to return, over all levels. To return all corners
+	 * 			just use N=-1.
+	 * @param executor The executor detecting the levels.
+	 * @return A list of FeaturePoint objects sorted by score, tagged with their level.
+	 */
+	public List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N, Executor executor)
+	{
+		return detect(image, w, h, stride, threshold, N, false, executor);
+	}
+
+	private List<FeaturePoint> detect(byte[] image, int w, int h, int stride, final int threshold, final int N,
+			final boolean nonMax, Executor executor)
+	{
+		build(image, w, h, stride);
+		final int[] strides = new int[levels];
+		strides[0] = stride;
+		for (int i = 1; i < levels; ++i) {
+			strides[i] = widths[i];
+		}
+		Runnable[] tasks = new Runnable[levels];
+		for (int i = 0; i < levels; ++i) {
+			final int level = i;
+			// The N best corners overall are among the N best of each level.
+			tasks[i] = new Runnable() {
+				public void run() {
+					if (nonMax)
+						Fast12.detectWithNonMax(images[level], widths[level], heights[level], strides[level], threshold, N,
+								corners[level], Fast12.SINGLE_PASS_SCORE, suppressors[level]);
+					else
+						Fast12.detect(images[level], widths[level], heights[level], strides[level], threshold, N,
+								corners[level]);
+				}
+			};
+		}
+		if (executor == null) {
+			for (int i = 0; i < levels; ++i) {
+				tasks[i].run();
+			}
+		} else {
+			Fast12.runAll(executor, tasks);
+		}
+
+		int count = 0;
+		for (int i = 0; i < levels; ++i) {
+			count += corners[i].size();
+		}
+		List<FeaturePoint> features = new ArrayList<FeaturePoint>(count);
+		for (int i = 0; i < levels; ++i) {
+			CornerBuffer level = corners[i];
+			float fx = (float) w / widths[i];
+			float fy = (float) h / heights[i];
+			for (int j = 0; j < level.size(); ++j) {
+				int x = Math.round((level.x(j) + 0.5f) * fx - 0.5f);
+				int y = Math.round((level.y(j) + 0.5f) * fy - 0.5f);
+				features.add(new FeaturePoint(x, y, level.score(j), i));
+			}
+		}
+		return Fast12.best(features, N);
+	}
+
+	/**
+	 * Computes the levels of an image. Level 0 is the image itself.
+	 */
+	private void build(byte[] image, int w, int h, int stride)
+	{
+		images[0] = image;
+		widths[0] = w;
+		heights[0] = h;
+		for (int i = 1; i < levels; ++i) {
+			double factor = Math.pow(scale, i);
+			widths[i] = Math.max(1, (int) Math.round(w / factor));
+			heights[i] = Math.max(1, (int) Math.round(h / factor));
+			int size = widths[i] * heights[i];
+			if (images[i] == null || images[i].length < size) {
+				images[i] = new byte[size];
+			}
+			downsample(images[i - 1], widths[i - 1], heights[i - 1], (i == 1)? stride : widths[i - 1],
+					images[i], widths[i], heights[i]);
+		}
+	}
+
+	/**
+	 * Scales an image down with bilinear interpolation, in 8-bit fixed point.
+	 */
+	private void downsample(byte[] src, int sw, int sh, int stride, byte[] dst, int dw, int dh)
+	{
+		if (columns.length < dw) {
+			columns = new int[dw];
+			weights = new int[dw];
+		}
+		float fx = (float) sw / dw;
+		for (int x = 0; x < dw; ++x) {
+			float sx = Math.max((x + 0.5f) * fx - 0.5f, 0);
+			int x0 = (int) sx;
+			columns[x] = Math.min(x0, sw - 1);
+			weights[x] = (x0 < sw - 1)? (int) ((sx - x0) * 256) : 0;
+		}
+		float fy = (float) sh / dh;
+		for (int y = 0; y < dh; ++y) {
+			float sy = Math.max((y + 0.5f) * fy - 0.5f, 0);
+			int y0 = (int) sy;
+			int wy = (y0 < sh - 1)? (int) ((sy - y0) * 256) : 0;
+			int row0 = Math.min(y0, sh - 1) * stride;
+			int row1 = (wy != 0)? row0 + stride : row0;
+			for (int x = 0, q = y * dw; x < dw; ++x, ++q) {
+				int x0 = columns[x];
+				int wx = weights[x];
+				int x1 = (wx != 0)? x0 + 1 : x0;
+				int top = (src[row0 + x0] & 0xFF) * (256 - wx) + (src[row0 + x1] & 0xFF) * wx;
+				int bottom = (src[row1 + x0] & 0xFF) * (256 - wx) + (src[row1 + x1] & 0xFF) * wx;
+				dst[q] = (byte) ((top * (256 - wy) + bottom * wy + 32768) >>> 16);
+			}
+		}
+	}
+}
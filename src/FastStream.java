@@ -0,0 +1,242 @@
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Incremental FAST12 detection for images arriving one row at a time, such as the
+ * strips of a line-scan camera. Only the last 7 rows of pixels are kept, so memory
+ * does not depend on the height of the image, and corners are emitted as soon as
+ * they are final.
+ *
+ * The rows are kept in a ring buffer where every row is written twice, 7 rows apart,
+ * so that any 7 consecutive rows are contiguous and the decision tree of Fast12 can
+ * run on them unchanged.
+ *
+ * A stream emits the same corners as Fast12.detect or Fast12.detectWithNonMax on the
+ * whole image, in row-major order instead of sorted by score. As the detectors do not
+ * test the last 4 rows of an image, the corners of a row are held back until the 4th
+ * row after it arrives, and the last ones are emitted by finish.
+ *
+ * Rows of a colour image can be pushed too, converted to luma straight into the
+ * window, which fuses the conversion with the detection in one pass over the image.
+ *
+ */
+public class FastStream {
+
+	private final int w;
+	private final int threshold;
+	private final boolean nonMax;
+	private final CornerScorer scorer;
+	private final int[] pixel;
+	private final byte[] window;
+	private final CornerBuffer found = new CornerBuffer();
+	// The row of a colour image read through getRGB, allocated by the first push of one.
+	private int[] rgb;
+
+	// The corners and the score lines of the last 4 tested rows, indexed by row % 4.
+	private final CornerBuffer[] corners = new CornerBuffer[4];
+	private final int[][] scores = new int[4][];
+
+	private int rows = 0;
+
+	/**
+	 * Create a stream detector scoring with Fast12.SINGLE_PASS_SCORE.
+	 * @param w The width of the rows.
+	 * @param threshold The detection threshold.
+	 * @param nonMax Whether to apply non-maximum suppression on the corners.
+	 */
+	public FastStream(int w, int threshold, boolean nonMax)
+	{
+		this(w, threshold, nonMax, Fast12.SINGLE_PASS_SCORE);
+	}
+
+	/**
+	 * Create a stream detector.
+	 * @param w The width of the rows.
+	 * @param threshold The detection threshold.
+	 * @param nonMax Whether to apply non-maximum suppression on the corners.
+	 * @param scorer The scorer used to score the corners.
+	 */
+	public FastStream(int w, int threshold, boolean nonMax, CornerScorer scorer)
+	{
+		this.w = w;
+		this.threshold = threshold;
+		this.nonMax = nonMax;
+		this.scorer = scorer;
+		this.pixel = Fast12.circleOffsets(w);
+		this.window = new byte[14 * w];
+		for (int i = 0; i < 4; ++i) {
+			corners[i] = new CornerBuffer();
+			scores[i] = new int[w];
+		}
+	}
+
+	/**
+	 * The number of rows pushed since the stream was created or reset.
+	 */
+	public int rows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Push the next row of the image.
+	 *
+	 * @param row An array holding the unsigned intensities of the row.
+	 * @param offset The index of the first pixel of the row in the array.
+	 * @param out The buffer the corners that became final are appended to.
+	 */
+	public void push(byte[] row, int offset, CornerBuffer out)
+	{
+		int slot = rows % 7;
+		System.arraycopy(row, offset, window, slot * w, w);
+		System.arraycopy(row, offset, window, (slot + 7) * w, w);
+		advance(out);
+	}
+
+	/**
+	 * Push the next row of the image from a buffer, such as a direct buffer which
+	 * has no array to detect in.
+	 *
+	 * @param row A buffer holding the unsigned intensities of the row.
+	 * @param index The index of the first pixel of the row in the buffer.
+	 * @param out The buffer the corners that became final are appended to.
+	 */
+	public void push(ByteBuffer row, int index, CornerBuffer out)
+	{
+		int slot = rows % 7;
+		row.get(index, window, slot * w, w);
+		System.arraycopy(window, slot * w, window, (slot + 7) * w, w);
+		advance(out);
+	}
+
+	/**
+	 * Push the next row of the image as the luma of a row of a colour image. The row
+	 * is converted straight into the window, so the image is read a single time and
+	 * no grayscale copy of it is made.
+	 *
+	 * @param image The colour image, as wide as the rows.
+	 * @param y The row of the image to push.
+	 * @param weights The weights of the colours.
+	 * @param out The buffer the corners that became final are appended to.
+	 */
+	public void push(BufferedImage image, int y, Filter.Weights weights, CornerBuffer out)
+	{
+		if (image.getWidth() != w) {
+			throw new IllegalArgumentException("The image is " + image.getWidth() + " wide, not " + w);
+		}
+		if (rgb == null) {
+			rgb = new int[w];
+		}
+		int slot = rows % 7;
+		// The conversion writes row y at offset+y*stride.
+		Filter.lumaRows(image, window, slot * w - y * w, w, weights, y, y + 1, rgb);
+		System.arraycopy(window, slot * w, window, (slot + 7) * w, w);
+		advance(out);
+	}
+
+	/**
+	 * Tests the rows whose neighbourhood the last pushed row completed, and emits
+	 * the corners which became final.
+	 */
+	private void advance(CornerBuffer out)
+	{
+		int r = rows++;
+
+		if (r - 3 >= 4)
+			test(r - 3);
+		if (!nonMax) {
+			if (r - 4 >= 4)
+				out.addAll(corners[(r - 4) & 3]);
+		} else {
+			if (r - 5 >= 4)
+				emit(r - 5, true, out);
+		}
+	}
+
+	/**
+	 * Signal the end of the image and emit the remaining corners. The stream is
+	 * then reset, ready for the next image.
+	 *
+	 * @param out The buffer the remaining corners are appended to.
+	 */
+	public void finish(CornerBuffer out)
+	{
+		// The last tested row turned out to be one of the last 4 rows of the image,
+		// so its corners are dropped. The row before it is final now.
+		int last = rows - 5;
+		if (nonMax && last >= 4)
+			emit(last, false, out);
+		reset();
+	}
+
+	/**
+	 * Discard the rows and the pending corners, to start a new image.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < 4; ++i) {
+			clear(i);
+		}
+		rows = 0;
+	}
+
+	/**
+	 * Runs the corner test on a row whose 3 rows above and below are in the window,
+	 * and keeps its scored corners and their score line.
+	 */
+	private void test(int y)
+	{
+		int i = y & 3;
+		clear(i);
+		// Rows y-3 to y+3 start at the slot of row y-3.
+		int centre = (y - 3) % 7 + 3;
+		found.clear();
+		Fast12.testRows(window, 0, w, w, centre, centre + 1, threshold, pixel, found);
+		scorer.score(window, 0, w, threshold, found);
+		CornerBuffer row = corners[i];
+		int[] line = scores[i];
+		for (int k = 0; k < found.size(); ++k) {
+			row.add(found.x(k), y, found.score(k));
+			line[found.x(k)] = found.score(k);
+		}
+	}
+
+	/**
+	 * Emits the maximal corners of a row.
+	 *
+	 * @param y The row.
+	 * @param below Whether the row below was tested and its corners count.
+	 * @param out The buffer to append the corners to.
+	 */
+	private void emit(int y, boolean below, CornerBuffer out)
+	{
+		CornerBuffer row = corners[y & 3];
+		int[] up = (y - 1 >= 4)? scores[(y - 1) & 3] : null;
+		int[] line = scores[y & 3];
+		int[] down = below? scores[(y + 1) & 3] : null;
+		for (int k = 0; k < row.size(); ++k) {
+			int x = row.x(k);
+			int score = row.score(k);
+			if (score >= line[x-1] && score >= line[x+1] &&
+			    (up == null || (score >= up[x-1] && score >= up[x] && score >= up[x+1])) &&
+			    (down == null || (score >= down[x-1] && score >= down[x] && score >= down[x+1]))) {
+				out.add(x, y, score);
+			}
+		}
+	}
+
+	/**
+	 * Empties a slot of pending corners, resetting only the touched cells of its
+	 * score line.
+	 */
+	private void clear(int i)
+	{
+		CornerBuffer row = corners[i];
+		int[] line = scores[i];
+		for (int k = 0; k < row.size(); ++k) {
+			line[row.x(k)] = 0;
+		}
+		row.clear();
+	}
+}
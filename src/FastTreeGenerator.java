@@ -0,0 +1,551 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Learns a FAST decision tree from images and writes it out as a Java detector,
+ * the way the trees of Fast12 were generated from Ed Rosten's Python code.
+ *
+ * Every pixel of the training images is turned into the configuration of its circle:
+ * each of the 16 pixels is brighter, darker or similar to the centre for the training
+ * threshold. An ID3 tree is then grown over the configurations, at each node testing
+ * the circle pixel which best separates corners from non-corners, weighted by how
+ * often each configuration occurs. A tree trained on the images of a domain asks the
+ * common questions first, so it needs fewer pixel tests per pixel on that domain.
+ *
+ * The tree is exact for every configuration, seen or not: a node only becomes a leaf
+ * once its known pixels decide the segment test, and where no training data reaches,
+ * the pixel on the most still-possible arcs is tested.
+ *
+ * Usage: java FastTreeGenerator [-n arc] [-t threshold] [-c class] [-o directory] image...
+ *
+ */
+public class FastTreeGenerator {
+
+	private static final int BRIGHTER = 0;
+	private static final int DARKER = 1;
+	private static final int SIMILAR = 2;
+
+	/**
+	 * The number of levels of the tree in each method of an emitted detector. Such
+	 * a method is a few hundred bytes of bytecode, small enough to be inlined.
+	 */
+	private static final int LEVELS = 3;
+
+	/**
+	 * The offsets of the circle pixels, as Fast12.circleOffsets computes them, as
+	 * expressions of the stride.
+	 */
+	private static final String[] OFFSETS = {
+		"3 * stride", "3 * stride + 1", "2 * stride + 2", "stride + 3",
+		"3", "-stride + 3", "-2 * stride + 2", "-3 * stride + 1",
+		"-3 * stride", "-3 * stride - 1", "-2 * stride - 2", "-stride - 3",
+		"-3", "stride - 3", "2 * stride - 2", "3 * stride - 1"
+	};
+
+	private final int arc;
+	private final int[] arcs = new int[16];
+	private final Map<Integer, long[]> counts = new HashMap<Integer, long[]>();
+
+	// The training set, one entry per distinct configuration, built by learn().
+	private int[] configs;
+	private long[] weights;
+	private boolean[] labels;
+	private long tests;
+
+	/**
+	 * A node of the tree. Leaves have no position.
+	 */
+	static final class Node {
+		final int position;
+		final Node brighter;
+		final Node darker;
+		final Node similar;
+		final boolean corner;
+
+		Node(boolean corner)
+		{
+			this.position = -1;
+			this.brighter = this.darker = this.similar = null;
+			this.corner = corner;
+		}
+
+		Node(int position, Node brighter, Node darker, Node similar)
+		{
+			this.position = position;
+			this.brighter = brighter;
+			this.darker = darker;
+			this.similar = similar;
+			this.corner = false;
+		}
+
+		boolean isLeaf()
+		{
+			return position < 0;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Node))
+				return false;
+			Node n = (Node) o;
+			if (isLeaf() || n.isLeaf())
+				return isLeaf() && n.isLeaf() && corner == n.corner;
+			return position == n.position && brighter.equals(n.brighter) &&
+			       darker.equals(n.darker) && similar.equals(n.similar);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return isLeaf()? (corner? 1 : 0) :
+				position + 31 * (brighter.hashCode() + 31 * (darker.hashCode() + 31 * similar.hashCode()));
+		}
+	}
+
+	/**
+	 * Create a generator.
+	 * @param arc The number of contiguous circle pixels a corner needs, 1 to 16.
+	 */
+	public FastTreeGenerator(int arc)
+	{
+		if (arc < 1 || arc > 16) {
+			throw new IllegalArgumentException("Arc length must be between 1 and 16: " + arc);
+		}
+		this.arc = arc;
+		for (int k = 0; k < 16; ++k) {
+			int mask = 0;
+			for (int i = 0; i < arc; ++i) {
+				mask |= 1 << ((k + i) & 15);
+			}
+			arcs[k] = mask;
+		}
+	}
+
+	/**
+	 * Add the configurations of every pixel of a flat 8-bit image to the training set.
+	 *
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param threshold The threshold deciding which circle pixels are brighter or darker.
+	 */
+	public void train(byte[] image, int w, int h, int stride, int threshold)
+	{
+		int[] pixel = Fast12.circleOffsets(stride);
+		for (int y = 3; y < h - 3; ++y) {
+			for (int x = 3, p = y * stride + 3; x < w - 3; ++x, ++p) {
+				int cb = (image[p] & 0xFF) + threshold;
+				int c_b = (image[p] & 0xFF) - threshold;
+				int bright = 0;
+				int dark = 0;
+				for (int k = 0; k < 16; ++k) {
+					int v = image[p + pixel[k]] & 0xFF;
+					if (v > cb)
+						bright |= 1 << k;
+					else if (v < c_b)
+						dark |= 1 << k;
+				}
+				Integer config = (bright << 16) | dark;
+				long[] count = counts.get(config);
+				if (count == null)
+					counts.put(config, count = new long[1]);
+				count[0]++;
+			}
+		}
+	}
+
+	/**
+	 * Grow the tree over the training set.
+	 * @return Returns the root of the tree.
+	 */
+	public Node learn()
+	{
+		int n = counts.size();
+		configs = new int[n];
+		weights = new long[n];
+		labels = new boolean[n];
+		int i = 0;
+		for (Map.Entry<Integer, long[]> e : counts.entrySet()) {
+			configs[i] = e.getKey();
+			weights[i] = e.getValue()[0];
+			labels[i] = mustBeCorner(configs[i] >>> 16, configs[i] & 0xFFFF);
+			i++;
+		}
+		int[] index = new int[n];
+		for (i = 0; i < n; ++i) {
+			index[i] = i;
+		}
+		tests = 0;
+		return build(0, 0, 0, index, 0, n);
+	}
+
+	/**
+	 * The average number of pixel tests per training pixel of the last learned tree.
+	 */
+	public double testsPerPixel()
+	{
+		long total = 0;
+		for (int i = 0; i < weights.length; ++i) {
+			total += weights[i];
+		}
+		return total == 0? 0 : (double) tests / total;
+	}
+
+	/**
+	 * Whether some arc is known to be all brighter or all darker.
+	 */
+	private boolean mustBeCorner(int bright, int dark)
+	{
+		for (int k = 0; k < 16; ++k) {
+			int a = arcs[k];
+			if ((a & ~bright) == 0 || (a & ~dark) == 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Whether some arc has no pixel known not to be brighter, or none known not
+	 * to be darker.
+	 */
+	private boolean canBeCorner(int notBright, int notDark)
+	{
+		for (int k = 0; k < 16; ++k) {
+			int a = arcs[k];
+			if ((a & notBright) == 0 || (a & notDark) == 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Grows the subtree of the configurations index[from..to), whose pixels in the
+	 * known masks are brighter, darker or similar.
+	 */
+	private Node build(int bright, int dark, int similar, int[] index, int from, int to)
+	{
+		int notBright = dark | similar;
+		int notDark = bright | similar;
+		if (!canBeCorner(notBright, notDark))
+			return new Node(false);
+		if (mustBeCorner(bright, dark))
+			return new Node(true);
+
+		int known = bright | dark | similar;
+		int best = -1;
+		double bestEntropy = Double.MAX_VALUE;
+		int bestArcs = -1;
+		for (int k = 0; k < 16; ++k) {
+			if ((known & (1 << k)) != 0)
+				continue;
+			double entropy = splitEntropy(k, index, from, to);
+			int feasible = feasibleArcs(k, notBright, notDark);
+			if (entropy < bestEntropy - 1e-12 || (Math.abs(entropy - bestEntropy) <= 1e-12 && feasible > bestArcs)) {
+				best = k;
+				bestEntropy = entropy;
+				bestArcs = feasible;
+			}
+		}
+		for (int i = from; i < to; ++i) {
+			tests += weights[index[i]];
+		}
+
+		// Partition the configurations by the state of the chosen pixel.
+		int b = from;
+		int s = to;
+		for (int i = from; i < s; ) {
+			int state = state(configs[index[i]], best);
+			if (state == BRIGHTER) {
+				swap(index, i++, b++);
+			} else if (state == SIMILAR) {
+				swap(index, i, --s);
+			} else {
+				i++;
+			}
+		}
+		int bit = 1 << best;
+		Node brighterNode = build(bright | bit, dark, similar, index, from, b);
+		Node darkerNode = build(bright, dark | bit, similar, index, b, s);
+		Node similarNode = build(bright, dark, similar | bit, index, s, to);
+		return new Node(best, brighterNode, darkerNode, similarNode);
+	}
+
+	private static int state(int config, int k)
+	{
+		if ((config >>> 16 & (1 << k)) != 0)
+			return BRIGHTER;
+		if ((config & (1 << k)) != 0)
+			return DARKER;
+		return SIMILAR;
+	}
+
+	private static void swap(int[] index, int i, int j)
+	{
+		int t = index[i];
+		index[i] = index[j];
+		index[j] = t;
+	}
+
+	/**
+	 * The weighted entropy of the labels after splitting on a pixel.
+	 */
+	private double splitEntropy(int k, int[] index, int from, int to)
+	{
+		long[][] w = new long[3][2];
+		for (int i = from; i < to; ++i) {
+			int e = index[i];
+			w[state(configs[e], k)][labels[e]? 1 : 0] += weights[e];
+		}
+		double entropy = 0;
+		for (int s = 0; s < 3; ++s) {
+			entropy += entropy(w[s][0], w[s][1]);
+		}
+		return entropy;
+	}
+
+	private static double entropy(long a, long b)
+	{
+		double n = a + b;
+		double e = 0;
+		if (a > 0)
+			e -= a * Math.log(a / n);
+		if (b > 0)
+			e -= b * Math.log(b / n);
+		return e;
+	}
+
+	/**
+	 * The number of still possible arcs a pixel belongs to.
+	 */
+	private int feasibleArcs(int k, int notBright, int notDark)
+	{
+		int count = 0;
+		for (int i = 0; i < 16; ++i) {
+			int a = arcs[i];
+			if ((a & (1 << k)) == 0)
+				continue;
+			if ((a & notBright) == 0)
+				count++;
+			if ((a & notDark) == 0)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Count the decision nodes of a tree.
+	 */
+	public static int size(Node node)
+	{
+		return node.isLeaf()? 0 : 1 + size(node.brighter) + size(node.darker) + size(node.similar);
+	}
+
+	/**
+	 * Write a tree out as the source of a detector class with the same methods as
+	 * Fast9 and its siblings.
+	 *
+	 * The row loop screens the pixels with Fast12.compassRow and only walks the tree
+	 * for the candidates. The tree is split into methods testing LEVELS levels each,
+	 * which call the methods of the subtrees below, and equal subtrees share a method.
+	 * A tree in a single method soon passes the 64 KB javac allows, and long before
+	 * that the 8000 bytes above which HotSpot does not compile a method at all.
+	 *
+	 * @param tree The tree, as returned by learn().
+	 * @param className The name of the class.
+	 * @param out Where to write the source.
+	 * @throws IOException
+	 */
+	public void emit(Node tree, String className, Writer out) throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("import java.util.List;\n\n");
+		sb.append("/**\n");
+		sb.append(" * A FAST" + arc + " corner detector whose decision tree was learned by FastTreeGenerator.\n");
+		sb.append(" * Do not edit, regenerate it instead.\n");
+		sb.append(" *\n");
+		sb.append(" */\n");
+		sb.append("public class " + className + " {\n\n");
+		sb.append("\t/**\n\t * Scores corners with the maximal threshold at which they are still FAST" + arc + " corners.\n\t */\n");
+		sb.append("\tpublic static final CornerScorer SINGLE_PASS_SCORE = new ArcScorer(" + arc + ");\n\n");
+		sb.append("\tpublic static List<FeaturePoint> detectWithNonMax(int[][] image, int w, int h, int threshold, int N)\n");
+		sb.append("\t{\n\t\treturn detectWithNonMax(Fast12.flatten(image, w, h), w, h, w, threshold, N);\n\t}\n\n");
+		sb.append("\tpublic static List<FeaturePoint> detect(int[][] image, int w, int h, int threshold, int N)\n");
+		sb.append("\t{\n\t\treturn detect(Fast12.flatten(image, w, h), w, h, w, threshold, N);\n\t}\n\n");
+		sb.append("\tpublic static List<FeaturePoint> detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N)\n");
+		sb.append("\t{\n\t\tCornerBuffer corners = new CornerBuffer();\n");
+		sb.append("\t\tdetectWithNonMax(image, w, h, stride, threshold, N, corners);\n\t\treturn corners.toList();\n\t}\n\n");
+		sb.append("\tpublic static List<FeaturePoint> detect(byte[] image, int w, int h, int stride, int threshold, int N)\n");
+		sb.append("\t{\n\t\tCornerBuffer corners = new CornerBuffer();\n");
+		sb.append("\t\tdetect(image, w, h, stride, threshold, N, corners);\n\t\treturn corners.toList();\n\t}\n\n");
+		sb.append("\tpublic static void detectWithNonMax(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners)\n");
+		sb.append("\t{\n\t\tcorners.clear();\n");
+		sb.append("\t\tdetectRows(image, w, stride, 4, h - 4, threshold, Fast12.circleOffsets(stride), corners);\n");
+		sb.append("\t\tSINGLE_PASS_SCORE.score(image, 0, stride, threshold, corners);\n");
+		sb.append("\t\tNonMaxSuppressor.shared().suppress(w, h, corners);\n");
+		sb.append("\t\tFast12.best(corners, N);\n\t}\n\n");
+		sb.append("\tpublic static void detect(byte[] image, int w, int h, int stride, int threshold, int N, CornerBuffer corners)\n");
+		sb.append("\t{\n\t\tcorners.clear();\n");
+		sb.append("\t\tdetectRows(image, w, stride, 4, h - 4, threshold, Fast12.circleOffsets(stride), corners);\n");
+		sb.append("\t\tSINGLE_PASS_SCORE.score(image, 0, stride, threshold, corners);\n");
+		sb.append("\t\tFast12.best(corners, N);\n\t}\n\n");
+		sb.append("\tstatic void detectRows(byte[] image, int w, int stride, int y0, int y1, int threshold, int[] pixel, CornerBuffer corners)\n");
+		sb.append("\t{\n");
+		sb.append("\t\tint words = (w + 63) >>> 6;\n");
+		sb.append("\t\tlong[] candidates = new long[words];\n");
+		sb.append("\t\tfor (int y = y0; y < y1; ++y) {\n");
+		sb.append("\t\t\tint row = y * stride;\n");
+		sb.append("\t\t\tFast12.compassRow(image, w, row, threshold, " + arc / 4 + ", pixel, candidates);\n");
+		sb.append("\t\t\tfor (int word = 0; word < words; ++word) {\n");
+		sb.append("\t\t\t\tfor (long bits = candidates[word]; bits != 0; bits &= bits - 1) {\n");
+		sb.append("\t\t\t\t\tint x = (word << 6) + Long.numberOfTrailingZeros(bits);\n");
+		sb.append("\t\t\t\t\tif (isCorner(image, row + x, stride, threshold))\n");
+		sb.append("\t\t\t\t\t\tcorners.add(x, y);\n");
+		sb.append("\t\t\t\t}\n\t\t\t}\n\t\t}\n\t}\n\n");
+		sb.append("\tstatic boolean isCorner(byte[] image, int p, int stride, int threshold)\n");
+		sb.append("\t{\n");
+		sb.append("\t\tint cb = (image[p] & 0xFF) + threshold;\n");
+		sb.append("\t\tint c_b = (image[p] & 0xFF) - threshold;\n");
+		sb.append("\t\treturn node0(image, p, stride, cb, c_b);\n");
+		sb.append("\t}\n");
+		emitMethods(tree, sb);
+		sb.append("}\n");
+		out.write(sb.toString());
+	}
+
+	/**
+	 * Writes a tree as the methods node0, node1... testing LEVELS levels each, node0
+	 * being the root. Each method takes the image, the index of the centre pixel, the
+	 * stride and the bounds cb and c_b above and below which a circle pixel is
+	 * brighter or darker, and returns whether the centre is a corner.
+	 *
+	 * @param tree The tree.
+	 * @param sb Where to write the methods.
+	 */
+	static void emitMethods(Node tree, StringBuilder sb)
+	{
+		Map<Node, String> names = new HashMap<Node, String>();
+		ArrayDeque<Node> pending = new ArrayDeque<Node>();
+		name(tree, names, pending);
+		while (!pending.isEmpty()) {
+			Node node = pending.poll();
+			sb.append("\n\tprivate static boolean " + names.get(node) + "(byte[] image, int p, int stride, int cb, int c_b)\n");
+			sb.append("\t{\n");
+			emitNode(node, 0, "\t\t", names, pending, sb);
+			sb.append("\t}\n");
+		}
+	}
+
+	/**
+	 * The name of the method of a subtree, queueing the subtree the first time.
+	 */
+	private static String name(Node node, Map<Node, String> names, ArrayDeque<Node> pending)
+	{
+		String name = names.get(node);
+		if (name == null) {
+			name = "node" + names.size();
+			names.put(node, name);
+			pending.add(node);
+		}
+		return name;
+	}
+
+	/**
+	 * Writes a subtree as a statement returning whether the pixel is a corner, calling
+	 * the methods of its subtrees at LEVELS levels below the top of the method.
+	 */
+	private static void emitNode(Node node, int level, String indent, Map<Node, String> names, 
+			ArrayDeque<Node> pending, StringBuilder sb)
+	{
+		if (node.isLeaf()) {
+			sb.append(indent).append("return " + node.corner + ";\n");
+			return;
+		}
+		if (level == LEVELS) {
+			sb.append(indent).append("return " + name(node, names, pending) + "(image, p, stride, cb, c_b);\n");
+			return;
+		}
+		String pixel = "(image[p + " + OFFSETS[node.position] + "] & 0xFF)";
+		if (node.darker.equals(node.similar)) {
+			sb.append(indent).append("if (" + pixel + " > cb) {\n");
+			emitNode(node.brighter, level + 1, indent + "\t", names, pending, sb);
+			sb.append(indent).append("} else {\n");
+			emitNode(node.similar, level + 1, indent + "\t", names, pending, sb);
+		} else if (node.brighter.equals(node.similar)) {
+			sb.append(indent).append("if (" + pixel + " < c_b) {\n");
+			emitNode(node.darker, level + 1, indent + "\t", names, pending, sb);
+			sb.append(indent).append("} else {\n");
+			emitNode(node.similar, level + 1, indent + "\t", names, pending, sb);
+		} else {
+			sb.append(indent).append("if (" + pixel + " > cb) {\n");
+			emitNode(node.brighter, level + 1, indent + "\t", names, pending, sb);
+			sb.append(indent).append("} else if (" + pixel + " < c_b) {\n");
+			emitNode(node.darker, level + 1, indent + "\t", names, pending, sb);
+			sb.append(indent).append("} else {\n");
+			emitNode(node.similar, level + 1, indent + "\t", names, pending, sb);
+		}
+		sb.append(indent).append("}\n");
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int arc = 12;
+		int threshold = 20;
+		String className = null;
+		String directory = ".";
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("-"); i += 2) {
+			if (i + 1 >= args.length) {
+				usage();
+				return;
+			}
+			if (args[i].equals("-n"))
+				arc = Integer.parseInt(args[i + 1]);
+			else if (args[i].equals("-t"))
+				threshold = Integer.parseInt(args[i + 1]);
+			else if (args[i].equals("-c"))
+				className = args[i + 1];
+			else if (args[i].equals("-o"))
+				directory = args[i + 1];
+			else {
+				usage();
+				return;
+			}
+		}
+		if (i == args.length) {
+			usage();
+			return;
+		}
+		if (className == null)
+			className = "Fast" + arc + "Trained";
+
+		FastTreeGenerator generator = new FastTreeGenerator(arc);
+		for (; i < args.length; ++i) {
+			BufferedImage img = ImageIO.read(new File(args[i]));
+			generator.train(Filter.luma(img), img.getWidth(), img.getHeight(), img.getWidth(), threshold);
+		}
+		Node tree = generator.learn();
+		File out = new File(directory, className + ".java");
+		Writer writer = new FileWriter(out);
+		try {
+			generator.emit(tree, className, writer);
+		} finally {
+			writer.close();
+		}
+		System.out.println("Wrote " + out + ": " + size(tree) + " nodes, " +
+				generator.testsPerPixel() + " pixel tests per training pixel.");
+	}
+
+	private static void usage()
+	{
+		System.out.println("Usage: java FastTreeGenerator [-n arc] [-t threshold] [-c class] [-o directory] image...");
+	}
+}
@@ -9,6 +9,7 @@ public class FeaturePoint implements Comparable<FeaturePoint>{
 	private int x = 0;
 	private int y = 0;
 	private int score = 0;
+	private int level = 0;
 	
 	/**
 	 * Create a feature point with zero score.
@@ -34,6 +35,22 @@ public class FeaturePoint implements Comparable<FeaturePoint>{
 		this.score = score;
 	}
 	
+	/**
+	 * Create a feature point found on a level of an image pyramid.
+	 * @param x The x-coordinate of the feature point, in the full resolution image.
+	 * @param y The y-coordinate of the feature point, in the full resolution image.
+	 * @param score The score of the feature point.
+	 * @param level The pyramid level the feature point was found on, 0 being the
+	 * 				full resolution image.
+	 */
+	public FeaturePoint(int x, int y, int score, int level) 
+	{
+		this.x = x;
+		this.y = y;
+		this.score = score;
+		this.level = level;
+	}
+	
 	public int x()
 	{
 		return x;
@@ -54,6 +71,11 @@ public class FeaturePoint implements Comparable<FeaturePoint>{
 		this.score = score;
 	}
 	
+	public int level()
+	{
+		return level;
+	}
+	
 	@Override
 	public int compareTo(FeaturePoint fc) 
 	{
@@ -1,13 +1,63 @@
 
 
 import java.awt.Graphics;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class Filter {
 	
 	private static final int MAX_RGB = 255;
 	private static final int MIN_RGB = 0;
 	
+	/**
+	 * The smallest number of rows given to a band by the parallel conversion.
+	 */
+	private static final int MIN_BAND_ROWS = 16;
+	
+	/**
+	 * The weights of red, green and blue in the luma of a pixel, in fixed point.
+	 */
+	public enum Weights {
+		/** Rec. ITU-R BT.601, for standard definition video and JPEG. */
+		BT601(77, 150, 29, 128, 8),
+		/** Rec. ITU-R BT.709, for high definition video. */
+		BT709(54, 183, 19, 128, 8),
+		/** The plain average of red, green and blue, rounded down, as grayScale uses. */
+		AVERAGE(21846, 21846, 21846, 0, 16);
+		
+		final int r;
+		final int g;
+		final int b;
+		final int round;
+		final int shift;
+		
+		private Weights(int r, int g, int b, int round, int shift)
+		{
+			this.r = r;
+			this.g = g;
+			this.b = b;
+			this.round = round;
+			this.shift = shift;
+		}
+		
+		int luma(int r, int g, int b)
+		{
+			return (this.r * r + this.g * g + this.b * b + round) >>> shift;
+		}
+	}
+	
 	private static int safe(int value)
 	{
 		return Math.max(MIN_RGB, Math.min(MAX_RGB, value));
@@ -47,4 +97,180 @@ public class Filter {
 		return gImage;
 	}
 	
+	/**
+	 * Converts an image to a flat array of 8-bit luma values, as the detectors take.
+	 * 
+	 * @param image The image.
+	 * @return Returns an array of width*height luma values, row by row.
+	 */
+	public static byte[] luma(BufferedImage image)
+	{
+		byte[] luma = new byte[image.getWidth() * image.getHeight()];
+		luma(image, luma, 0, image.getWidth());
+		return luma;
+	}
+	
+	/**
+	 * Converts an image to 8-bit luma values, with the BT.601 weights, written
+	 * straight into a flat array.
+	 * 
+	 * @param image The image.
+	 * @param luma The array to write the luma values to.
+	 * @param offset The index of the first pixel in the array.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 */
+	public static void luma(BufferedImage image, byte[] luma, int offset, int stride)
+	{
+		luma(image, luma, offset, stride, Weights.BT601);
+	}
+	
+	/**
+	 * Converts an image to 8-bit luma values, in integer arithmetic, written straight
+	 * into a flat array. The pixels of the usual types of BufferedImage, packed in ints
+	 * or interleaved in bytes, are read from their data buffer row by row. Gray images
+	 * are copied as they are. Other types are read one row at a time through getRGB.
+	 * 
+	 * @param image The image.
+	 * @param luma The array to write the luma values to.
+	 * @param offset The index of the first pixel in the array.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param weights The weights of the colours.
+	 */
+	public static void luma(BufferedImage image, byte[] luma, int offset, int stride, Weights weights)
+	{
+		lumaRows(image, luma, offset, stride, weights, 0, image.getHeight(), null);
+	}
+	
+	/**
+	 * Converts an image to 8-bit luma values as luma does, in parallel bands of rows.
+	 * Every pixel is converted on its own, so the result does not depend on the bands.
+	 * 
+	 * @param image The image.
+	 * @param luma The array to write the luma values to.
+	 * @param offset The index of the first pixel in the array.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param weights The weights of the colours.
+	 * @param executor The executor converting the bands, typically a ForkJoinPool.
+	 */
+	public static void luma(final BufferedImage image, final byte[] luma, final int offset, final int stride, 
+			final Weights weights, Executor executor)
+	{
+		int h = image.getHeight();
+		int parallelism = (executor instanceof ForkJoinPool)? 
+				((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+		int count = Math.max(1, Math.min(parallelism * 4, h / MIN_BAND_ROWS));
+		Runnable[] tasks = new Runnable[count];
+		for (int i = 0; i < count; ++i) {
+			final int y0 = (int) ((long) h * i / count);
+			final int y1 = (int) ((long) h * (i + 1) / count);
+			tasks[i] = new Runnable() {
+				public void run() {
+					lumaRows(image, luma, offset, stride, weights, y0, y1, null);
+				}
+			};
+		}
+		Fast12.runAll(executor, tasks);
+	}
+	
+	/**
+	 * Converts the rows y0 to y1-1 of an image to 8-bit luma values, writing row y
+	 * from offset+y*stride. Images read through getRGB are read into scratch, when it holds
+	 * a row, so that callers converting one row at a time can reuse it; otherwise, as
+	 * when it is null, a row is allocated for the call.
+	 */
+	static void lumaRows(BufferedImage image, byte[] luma, int offset, int stride, Weights weights, int y0, int y1, int[] scratch)
+	{
+		int w = image.getWidth();
+		WritableRaster raster = image.getRaster();
+		ColorModel cm = image.getColorModel();
+		SampleModel sm = raster.getSampleModel();
+		DataBuffer db = raster.getDataBuffer();
+		// The position of the raster's first pixel in its sample model, for sub-images.
+		int tx = -raster.getSampleModelTranslateX();
+		int ty = -raster.getSampleModelTranslateY();
+		
+		if (db instanceof DataBufferInt && sm instanceof SinglePixelPackedSampleModel &&
+				cm instanceof DirectColorModel && cm.getColorSpace().isCS_sRGB() && !cm.isAlphaPremultiplied()) {
+			DirectColorModel dcm = (DirectColorModel) cm;
+			int rs = shift(dcm.getRedMask());
+			int gs = shift(dcm.getGreenMask());
+			int bs = shift(dcm.getBlueMask());
+			if (rs >= 0 && gs >= 0 && bs >= 0) {
+				int[] data = ((DataBufferInt) db).getData();
+				int scanline = ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+				int base = db.getOffset() + ty * scanline + tx;
+				for (int y = y0; y < y1; ++y) {
+					int p = base + y * scanline;
+					int q = offset + y * stride;
+					for (int x = 0; x < w; ++x) {
+						int rgb = data[p + x];
+						luma[q + x] = (byte) weights.luma((rgb >>> rs) & 0xFF, (rgb >>> gs) & 0xFF, (rgb >>> bs) & 0xFF);
+					}
+				}
+				return;
+			}
+		}
+		
+		if (db instanceof DataBufferByte && sm instanceof ComponentSampleModel &&
+				cm instanceof ComponentColorModel && !cm.isAlphaPremultiplied() && sm.getNumBands() == cm.getNumComponents()) {
+			byte[] data = ((DataBufferByte) db).getData();
+			ComponentSampleModel csm = (ComponentSampleModel) sm;
+			int pixelStride = csm.getPixelStride();
+			int scanline = csm.getScanlineStride();
+			int[] bands = csm.getBandOffsets();
+			int[] banks = csm.getBankIndices();
+			boolean singleBank = true;
+			for (int bank : banks) {
+				singleBank &= (bank == 0);
+			}
+			int base = db.getOffset() + ty * scanline + tx * pixelStride;
+			if (singleBank && cm.getNumColorComponents() == 1 && cm.getColorSpace().getType() == ColorSpace.TYPE_GRAY) {
+				for (int y = y0; y < y1; ++y) {
+					int p = base + y * scanline + bands[0];
+					int q = offset + y * stride;
+					if (pixelStride == 1) {
+						System.arraycopy(data, p, luma, q, w);
+					} else {
+						for (int x = 0; x < w; ++x, p += pixelStride) {
+							luma[q + x] = data[p];
+						}
+					}
+				}
+				return;
+			}
+			if (singleBank && cm.getNumColorComponents() == 3 && cm.getColorSpace().isCS_sRGB()) {
+				for (int y = y0; y < y1; ++y) {
+					int p = base + y * scanline;
+					int q = offset + y * stride;
+					int r = p + bands[0];
+					int g = p + bands[1];
+					int b = p + bands[2];
+					for (int x = 0; x < w; ++x, r += pixelStride, g += pixelStride, b += pixelStride) {
+						luma[q + x] = (byte) weights.luma(data[r] & 0xFF, data[g] & 0xFF, data[b] & 0xFF);
+					}
+				}
+				return;
+			}
+		}
+		
+		int[] row = (scratch != null && scratch.length >= w)? scratch : new int[w];
+		for (int y = y0; y < y1; ++y) {
+			image.getRGB(0, y, w, 1, row, 0, w);
+			int q = offset + y * stride;
+			for (int x = 0; x < w; ++x) {
+				int rgb = row[x];
+				luma[q + x] = (byte) weights.luma((rgb >>> 16) & 0xFF, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+			}
+		}
+	}
+	
+	/**
+	 * The shift of an 8-bit colour channel mask, or -1 if it is not 8 contiguous bits.
+	 */
+	private static int shift(int mask)
+	{
+		int shift = Integer.numberOfTrailingZeros(mask);
+		return (shift < 32 && mask >>> shift == 0xFF)? shift : -1;
+	}
+	
 }
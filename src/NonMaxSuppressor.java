@@ -0,0 +1,346 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A non-maximum suppression engine, keeping only the corners whose score is not
+ * smaller than the score of any of their 8 neighbours.
+ *
+ * When the corners are sparse and in row-major order, as they come out of the
+ * detectors, the neighbours are found by walking the corners in that order, which
+ * needs memory proportional to the number of corners. Otherwise their scores are
+ * written into a score image. The engine keeps the score image between calls, sized
+ * for the largest frame seen, and after each call resets only the cells it wrote, so
+ * suppressing a stream of frames does not allocate.
+ *
+ * In border-safe mode the neighbours are bounds-checked, so corners anywhere in the
+ * image, including on its edges, can be suppressed, as found by detectors working on
+ * regions of interest or masks. Otherwise all corners must be at least one pixel away
+ * from the edges, which is always true for the output of the detectors.
+ *
+ * An engine is not thread-safe. Use one per thread, or the parallel variant of suppress.
+ * The detectors' overloads that take no engine use one per thread, kept between calls.
+ *
+ */
+public class NonMaxSuppressor {
+
+	/**
+	 * The corners are suppressed by their row-major order when fewer than 1 in
+	 * SPARSE_DENSITY pixels is a corner, and in a score image otherwise.
+	 */
+	private static final int SPARSE_DENSITY = 4;
+
+	/**
+	 * The engines of the detectors' overloads that take none, one per thread, so that
+	 * each keeps its score image from frame to frame.
+	 */
+	private static final ThreadLocal<NonMaxSuppressor> SHARED = new ThreadLocal<NonMaxSuppressor>() {
+		@Override
+		protected NonMaxSuppressor initialValue()
+		{
+			return new NonMaxSuppressor();
+		}
+	};
+
+	private final boolean borderSafe;
+	private int[] pixels = new int[0];
+	private boolean[] maximal = new boolean[0];
+
+	/**
+	 * Create an engine for corners at least one pixel away from the edges.
+	 */
+	public NonMaxSuppressor()
+	{
+		this(false);
+	}
+
+	/**
+	 * Create an engine.
+	 * @param borderSafe Whether corners may lie on the edges of the image.
+	 */
+	public NonMaxSuppressor(boolean borderSafe)
+	{
+		this.borderSafe = borderSafe;
+	}
+
+	/**
+	 * The engine of the calling thread, which the detectors use when they are given
+	 * none. It is not border-safe.
+	 */
+	static NonMaxSuppressor shared()
+	{
+		return SHARED.get();
+	}
+
+	public boolean isBorderSafe()
+	{
+		return borderSafe;
+	}
+
+	/**
+	 * Suppress the non-maximal corners of a buffer, in place.
+	 *
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param corners A buffer of scored corners. On return it holds only the maximal
+	 * 				  ones, in their original order.
+	 */
+	public void suppress(int w, int h, CornerBuffer corners)
+	{
+		suppress(w, h, corners, new int[] {0, corners.size()}, null);
+	}
+
+	/**
+	 * Suppress the non-maximal corners of a list.
+	 *
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param features A list of FeaturePoint objects, most likely calculated with
+	 *  			   one of the detection functions.
+	 * @return Returns the maximal FeaturePoint objects, in their original order.
+	 */
+	public List<FeaturePoint> suppress(int w, int h, List<FeaturePoint> features)
+	{
+		int count = features.size();
+		CornerBuffer corners = new CornerBuffer(count);
+		for (int i = 0; i < count; ++i) {
+			FeaturePoint fp = features.get(i);
+			corners.add(fp.x(), fp.y(), fp.score());
+		}
+		mark(w, h, corners, new int[] {0, count}, null);
+		List<FeaturePoint> nonMaxFeatures = new ArrayList<FeaturePoint>();
+		for (int i = 0; i < count; ++i) {
+			if (maximal[i])
+				nonMaxFeatures.add(features.get(i));
+		}
+		return nonMaxFeatures;
+	}
+
+	/**
+	 * Suppress the non-maximal corners of a buffer, in place, checking slices of the
+	 * buffer in parallel.
+	 *
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param corners A buffer of scored corners. On return it holds only the maximal
+	 * 				  ones, in their original order.
+	 * @param slices The boundaries of the slices, starting with 0 and ending with the
+	 * 				 number of corners.
+	 * @param executor The executor checking the slices, or null to check them in turn.
+	 */
+	void suppress(int w, int h, CornerBuffer corners, int[] slices, Executor executor)
+	{
+		mark(w, h, corners, slices, executor);
+		int count = corners.size();
+		int kept = 0;
+		for (int i = 0; i < count; ++i) {
+			if (maximal[i])
+				corners.move(i, kept++);
+		}
+		corners.truncate(kept);
+	}
+
+	/**
+	 * Sets maximal[i] for every corner of a buffer.
+	 */
+	private void mark(final int w, final int h, final CornerBuffer corners, int[] slices, Executor executor)
+	{
+		int count = corners.size();
+		if (maximal.length < count) {
+			maximal = new boolean[Math.max(count, maximal.length + (maximal.length >> 1))];
+		}
+		if ((long) count * SPARSE_DENSITY < (long) w * h && isRowMajor(corners)) {
+			run(slices, executor, new Slice() {
+				public void run(int from, int to) {
+					markRows(corners, from, to);
+				}
+			});
+			return;
+		}
+		if ((long) w * h > pixels.length) {
+			pixels = new int[w * h];
+		}
+		if (borderSafe) {
+			checkBounds(w, h, corners);
+		}
+		run(slices, executor, new Slice() {
+			public void run(int from, int to) {
+				plot(w, corners, from, to);
+			}
+		});
+		run(slices, executor, new Slice() {
+			public void run(int from, int to) {
+				if (borderSafe)
+					markPlaneSafe(w, h, corners, from, to);
+				else
+					markPlane(w, corners, from, to);
+			}
+		});
+		run(slices, executor, new Slice() {
+			public void run(int from, int to) {
+				unplot(w, corners, from, to);
+			}
+		});
+	}
+
+	/**
+	 * A piece of work on a slice of the corners.
+	 */
+	private interface Slice {
+		void run(int from, int to);
+	}
+
+	private static void run(int[] slices, Executor executor, final Slice slice)
+	{
+		if (executor == null) {
+			slice.run(slices[0], slices[slices.length - 1]);
+			return;
+		}
+		Runnable[] tasks = new Runnable[slices.length - 1];
+		for (int i = 0; i < tasks.length; ++i) {
+			final int from = slices[i];
+			final int to = slices[i + 1];
+			tasks[i] = new Runnable() {
+				public void run() {
+					slice.run(from, to);
+				}
+			};
+		}
+		Fast12.runAll(executor, tasks);
+	}
+
+	private static boolean isRowMajor(CornerBuffer corners)
+	{
+		for (int i = 1; i < corners.size(); ++i) {
+			if (key(corners.y(i), corners.x(i)) <= key(corners.y(i-1), corners.x(i-1)))
+				return false;
+		}
+		return true;
+	}
+
+	private static void checkBounds(int w, int h, CornerBuffer corners)
+	{
+		for (int i = 0; i < corners.size(); ++i) {
+			int x = corners.x(i);
+			int y = corners.y(i);
+			if (x < 0 || x >= w || y < 0 || y >= h) {
+				throw new IllegalArgumentException("Corner (" + x + "," + y + ") is outside the " + w + "x" + h + " image");
+			}
+		}
+	}
+
+	private void plot(int w, CornerBuffer corners, int from, int to)
+	{
+		for (int i = from; i < to; ++i) {
+			pixels[corners.y(i) * w + corners.x(i)] = corners.score(i);
+		}
+	}
+
+	private void unplot(int w, CornerBuffer corners, int from, int to)
+	{
+		for (int i = from; i < to; ++i) {
+			pixels[corners.y(i) * w + corners.x(i)] = 0;
+		}
+	}
+
+	private void markPlane(int w, CornerBuffer corners, int from, int to)
+	{
+		for (int i = from; i < to; ++i) {
+			int p = corners.y(i) * w + corners.x(i);
+			int score = corners.score(i);
+			maximal[i] = score >= pixels[p-w+1] && score >= pixels[p-w] &&
+			             score >= pixels[p-w-1] && score >= pixels[p+1] &&
+			             score >= pixels[p-1] && score >= pixels[p+w+1] &&
+			             score >= pixels[p+w] && score >= pixels[p+w-1];
+		}
+	}
+
+	private void markPlaneSafe(int w, int h, CornerBuffer corners, int from, int to)
+	{
+		for (int i = from; i < to; ++i) {
+			int x = corners.x(i);
+			int y = corners.y(i);
+			int score = corners.score(i);
+			int x0 = Math.max(x - 1, 0);
+			int x1 = Math.min(x + 1, w - 1);
+			int y0 = Math.max(y - 1, 0);
+			int y1 = Math.min(y + 1, h - 1);
+			boolean max = true;
+			for (int v = y0; max && v <= y1; ++v) {
+				for (int u = x0; u <= x1; ++u) {
+					if (pixels[v * w + u] > score) {
+						max = false;
+						break;
+					}
+				}
+			}
+			maximal[i] = max;
+		}
+	}
+
+	/**
+	 * Checks the corners without a score image. This is Ed Rosten's
+	 * nonmax_suppression: since the corners are in row-major order, the neighbours
+	 * in the rows above and below are found by two cursors which only move forward.
+	 */
+	private void markRows(CornerBuffer corners, int from, int to)
+	{
+		int count = corners.size();
+		if (from >= to)
+			return;
+		int above = lowerBound(corners, corners.y(from) - 1, corners.x(from) - 1);
+		int below = lowerBound(corners, corners.y(from) + 1, corners.x(from) - 1);
+		for (int i = from; i < to; ++i) {
+			int x = corners.x(i);
+			int y = corners.y(i);
+			int score = corners.score(i);
+			boolean max = true;
+			// Left and right neighbours are next to the corner in the buffer.
+			if (i > 0 && corners.y(i-1) == y && corners.x(i-1) == x-1 && corners.score(i-1) > score)
+				max = false;
+			else if (i + 1 < count && corners.y(i+1) == y && corners.x(i+1) == x+1 && corners.score(i+1) > score)
+				max = false;
+			long first = key(y-1, x-1);
+			while (above < count && key(corners.y(above), corners.x(above)) < first)
+				above++;
+			for (int j = above; max && j < count && corners.y(j) == y-1 && corners.x(j) <= x+1; ++j) {
+				if (corners.score(j) > score)
+					max = false;
+			}
+			first = key(y+1, x-1);
+			while (below < count && key(corners.y(below), corners.x(below)) < first)
+				below++;
+			for (int j = below; max && j < count && corners.y(j) == y+1 && corners.x(j) <= x+1; ++j) {
+				if (corners.score(j) > score)
+					max = false;
+			}
+			maximal[i] = max;
+		}
+	}
+
+	/**
+	 * The position of a pixel in row-major order.
+	 */
+	private static long key(int y, int x)
+	{
+		return ((long) y << 32) + x;
+	}
+
+	/**
+	 * Finds the first corner of a buffer in row-major order which is not before (x,y).
+	 */
+	private static int lowerBound(CornerBuffer corners, int y, int x)
+	{
+		long k = key(y, x);
+		int lo = 0;
+		int hi = corners.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (key(corners.y(mid), corners.x(mid)) < k)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
@@ -0,0 +1,270 @@
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * A region of interest of an image, for detecting corners only in parts of it, such
+ * as the windows where tracked corners are predicted or the areas which are not
+ * occluded. The detectors only scan the region, and find exactly the corners a scan
+ * of the whole image finds in it.
+ *
+ * A region is built from rectangles or from a bit mask, and is held as the sorted,
+ * disjoint spans of pixels it covers on each row. Regions are immutable.
+ *
+ */
+public final class Region {
+
+	private final int w;
+	private final int h;
+	// The spans of row y are spans[2*i] to spans[2*i+1], for rows[y] <= i < rows[y+1].
+	private final int[] rows;
+	private final int[] spans;
+
+	private Region(int w, int h, int[] rows, int[] spans)
+	{
+		this.w = w;
+		this.h = h;
+		this.rows = rows;
+		this.spans = spans;
+	}
+
+	/**
+	 * Create the region covered by a set of rectangles, which may overlap and extend
+	 * past the edges of the image.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param rectangles The rectangles.
+	 */
+	public static Region ofRectangles(int w, int h, Rectangle... rectangles)
+	{
+		Builder builder = new Builder(w, h);
+		long[] row = new long[rectangles.length];
+		for (int y = 0; y < h; ++y) {
+			int n = 0;
+			for (Rectangle r : rectangles) {
+				if (y >= r.y && y - r.y < r.height) {
+					row[n++] = span(r.x, (int) Math.min((long) r.x + r.width, Integer.MAX_VALUE));
+				}
+			}
+			builder.addRow(row, n);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Create the region of the set bits of a mask with one bit per pixel. Row y of the
+	 * mask starts at word y*((w+63)/64), and pixel x is bit x%64 of word x/64 of its row.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param mask The mask, of at least h*((w+63)/64) words.
+	 */
+	public static Region ofMask(int w, int h, long[] mask)
+	{
+		Builder builder = new Builder(w, h);
+		int words = (w + 63) >>> 6;
+		for (int y = 0; y < h; ++y) {
+			builder.addRuns(mask, y * words, w, 1);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Create the region of the set bits of a mask with one bit per block of 8x8 pixels.
+	 * The mask is laid out as for ofMask, for an image of (w+7)/8 by (h+7)/8 blocks.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param mask The mask, of at least ((h+7)/8)*(((w+7)/8+63)/64) words.
+	 */
+	public static Region ofBlockMask(int w, int h, long[] mask)
+	{
+		Builder builder = new Builder(w, h);
+		int blocks = (w + 7) >>> 3;
+		int words = (blocks + 63) >>> 6;
+		for (int y = 0; y < h; ++y) {
+			builder.addRuns(mask, (y >>> 3) * words, blocks, 8);
+		}
+		return builder.build();
+	}
+
+	public int width()
+	{
+		return w;
+	}
+
+	public int height()
+	{
+		return h;
+	}
+
+	/**
+	 * Whether the region covers a pixel.
+	 */
+	public boolean contains(int x, int y)
+	{
+		if (y < 0 || y >= h)
+			return false;
+		int lo = rows[y];
+		int hi = rows[y + 1];
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (spans[2 * mid + 1] <= x)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo < rows[y + 1] && spans[2 * lo] <= x;
+	}
+
+	/**
+	 * The first span of a row.
+	 */
+	int first(int y)
+	{
+		return rows[y];
+	}
+
+	/**
+	 * The span after the last span of a row.
+	 */
+	int last(int y)
+	{
+		return rows[y + 1];
+	}
+
+	/**
+	 * The first pixel of a span.
+	 */
+	int start(int i)
+	{
+		return spans[2 * i];
+	}
+
+	/**
+	 * The pixel after the last pixel of a span.
+	 */
+	int end(int i)
+	{
+		return spans[2 * i + 1];
+	}
+
+	/**
+	 * The region grown by one pixel in all 8 directions, covering the neighbours
+	 * of its pixels.
+	 */
+	Region dilate()
+	{
+		Builder builder = new Builder(w, h);
+		long[] row = new long[0];
+		for (int y = 0; y < h; ++y) {
+			int v0 = Math.max(y - 1, 0);
+			int v1 = Math.min(y + 1, h - 1);
+			int count = rows[v1 + 1] - rows[v0];
+			if (row.length < count) {
+				row = new long[count];
+			}
+			int n = 0;
+			for (int i = rows[v0]; i < rows[v1 + 1]; ++i) {
+				row[n++] = span(spans[2 * i] - 1, spans[2 * i + 1] + 1);
+			}
+			builder.addRow(row, n);
+		}
+		return builder.build();
+	}
+
+	private static long span(int start, int end)
+	{
+		return ((long) start << 32) | (end & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Collects the spans of a region row by row.
+	 */
+	private static class Builder {
+
+		private final int w;
+		private final int h;
+		private final int[] rows;
+		private int[] spans = new int[16];
+		private int count = 0;
+		private int y = 0;
+
+		Builder(int w, int h)
+		{
+			this.w = w;
+			this.h = h;
+			this.rows = new int[h + 1];
+		}
+
+		/**
+		 * Adds the next row from spans which may overlap and be out of order.
+		 */
+		void addRow(long[] row, int n)
+		{
+			Arrays.sort(row, 0, n);
+			int start = 0;
+			int end = 0;
+			for (int i = 0; i < n; ++i) {
+				int s = Math.max((int) (row[i] >> 32), 0);
+				int e = Math.min((int) row[i], w);
+				if (s >= e)
+					continue;
+				if (s > end) {
+					add(start, end);
+					start = s;
+				}
+				end = Math.max(end, e);
+			}
+			add(start, end);
+			rows[++y] = count;
+		}
+
+		/**
+		 * Adds the next row from the runs of set bits of a mask row, each bit
+		 * covering scale pixels.
+		 */
+		void addRuns(long[] mask, int base, int bits, int scale)
+		{
+			int x = next(mask, base, 0, bits, 0);
+			while (x < bits) {
+				int end = next(mask, base, x, bits, -1L);
+				add(x * scale, Math.min(end * scale, w));
+				x = next(mask, base, end, bits, 0);
+			}
+			rows[++y] = count;
+		}
+
+		/**
+		 * Finds the first bit from a position which differs from the bits of flip,
+		 * or limit when there is none.
+		 */
+		private static int next(long[] mask, int base, int from, int limit, long flip)
+		{
+			if (from >= limit)
+				return limit;
+			int word = from >>> 6;
+			long bits = (mask[base + word] ^ flip) & (-1L << from);
+			while (bits == 0) {
+				if (++word << 6 >= limit)
+					return limit;
+				bits = mask[base + word] ^ flip;
+			}
+			return Math.min((word << 6) + Long.numberOfTrailingZeros(bits), limit);
+		}
+
+		private void add(int start, int end)
+		{
+			if (start >= end)
+				return;
+			if (2 * count + 2 > spans.length) {
+				spans = Arrays.copyOf(spans, spans.length * 2);
+			}
+			spans[2 * count] = start;
+			spans[2 * count + 1] = end;
+			count++;
+		}
+
+		Region build()
+		{
+			return new Region(w, h, rows, Arrays.copyOf(spans, 2 * count));
+		}
+	}
+}
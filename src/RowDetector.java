@@ -0,0 +1,45 @@
+
+/**
+ * A corner test over a band of rows of a flat image, letting Fast12 swap its
+ * decision tree for an equivalent implementation, and FastN run its own test
+ * through the parallel and region detection of Fast12.
+ *
+ */
+interface RowDetector {
+
+	/**
+	 * Runs the corner test on a band of rows of a flat image and appends the
+	 * corners found to a buffer, in row-major order. The corners are not scored.
+	 *
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param offset The index of the pixel (0,0) in the image array.
+	 * @param w The width of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param y0 The first row to test. Must be at least 4.
+	 * @param y1 The row after the last row to test. Must be at most h-4.
+	 * @param threshold The detection threshold.
+	 * @param pixel The circle offsets, as returned by Fast12.circleOffsets.
+	 * @param corners The buffer to append the corners to.
+	 */
+	void detectRows(byte[] image, int offset, int w, int stride, int y0, int y1, int threshold, int[] pixel, CornerBuffer corners);
+
+	/**
+	 * Runs the corner test on a rectangle of a flat image and appends the corners
+	 * found to a buffer, in row-major order. The corners are not scored.
+	 *
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param offset The index of the pixel (0,0) in the image array.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param x0 The first column to test. Must be at least 4.
+	 * @param y0 The first row to test. Must be at least 4.
+	 * @param x1 The column after the last column to test. Must be at most w-4.
+	 * @param y1 The row after the last row to test. Must be at most h-4.
+	 * @param threshold The detection threshold.
+	 * @param pixel The circle offsets, as returned by Fast12.circleOffsets.
+	 * @param corners The buffer to append the corners to.
+	 * @param candidates A scratch bitmap of at least (x1-x0+71)/64 words, for the
+	 * 					 candidates of Fast12.compassRow.
+	 */
+	void detectRect(byte[] image, int offset, int stride, int x0, int y0, int x1, int y1, int threshold, int[] pixel, 
+			CornerBuffer corners, long[] candidates);
+}
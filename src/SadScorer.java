@@ -0,0 +1,49 @@
+
+/**
+ * Scores corners with the sum of the absolute differences between the centre and
+ * the circle pixels which pass the threshold, as in Ed Rosten's original C code.
+ * The brighter and the darker pixels are summed separately and the larger sum is
+ * the score. The score is cheaper than the maximal threshold, needing a single pass
+ * with no branches, and is good enough to rank and suppress corners, but it is not
+ * the threshold at which the point stops being a corner.
+ *
+ */
+public class SadScorer implements CornerScorer {
+
+	@Override
+	public void score(byte[] image, int offset, int stride, int threshold, CornerBuffer corners)
+	{
+		int[] pixel = Fast12.circleOffsets(stride);
+		int count = corners.size();
+		for (int i = 0; i < count; ++i) {
+			int p = offset + corners.y(i) * stride + corners.x(i);
+			corners.score(i, score(image, p, pixel, threshold));
+		}
+	}
+
+	/**
+	 * Scores a single point.
+	 *
+	 * @param image A byte array holding the unsigned image intensity values.
+	 * @param p The index of the point in the image array.
+	 * @param pixel The circle offsets, as returned by Fast12.circleOffsets.
+	 * @param threshold The detection threshold.
+	 * @return Returns the larger of the sums over the brighter and the darker pixels.
+	 */
+	static int score(byte[] image, int p, int[] pixel, int threshold)
+	{
+		int cb = (image[p] & 0xFF) + threshold;
+		int c_b = (image[p] & 0xFF) - threshold;
+		int brighter = 0;
+		int darker = 0;
+		for (int k = 0; k < 16; ++k) {
+			int v = image[p + pixel[k]] & 0xFF;
+			int b = v - cb;
+			int d = c_b - v;
+			// x & ~(x >> 31) is max(x, 0) without a branch.
+			brighter += b & ~(b >> 31);
+			darker += d & ~(d >> 31);
+		}
+		return Math.max(brighter, darker);
+	}
+}
@@ -0,0 +1,248 @@
+import java.util.Arrays;
+
+/**
+ * Chooses the FAST12 threshold to keep the number of corners within a target band,
+ * as the number found at a fixed threshold swings with the content of the images.
+ *
+ * Over a sequence of frames, each frame is detected with the current threshold and
+ * the number of corners found sets the threshold of the next one. The number of
+ * corners falls about geometrically as the threshold grows, so the threshold moves
+ * by a step growing with the logarithm of how far the count is from the band.
+ *
+ * A single frame can also be brought into the band on its own. Since a point is a
+ * corner at threshold t exactly when its score, the maximal threshold at which it is
+ * a corner, is at least t, one scan at a lower threshold gives the corners at every
+ * higher threshold without scanning the image again: a histogram of the scores gives
+ * their number, and the corners are those scoring at least the chosen threshold.
+ * Suppression only removes a corner for a neighbour scoring more, which is a corner at
+ * every threshold the first one is, so the corners are suppressed once, after the scan,
+ * and the histogram counts the ones left. When the scan finds fewer than minCorners,
+ * the frame is scanned again at the minimum threshold.
+ *
+ * A controller is not thread-safe. Use one per sequence of frames.
+ *
+ */
+public class ThresholdController {
+
+	/**
+	 * The threshold moves by STEP for every factor of 2 between the corner count
+	 * and the band, and by at most MAX_STEP at a time.
+	 */
+	private static final int STEP = 2;
+	private static final int MAX_STEP = 16;
+
+	private final int minCorners;
+	private final int maxCorners;
+	private final int minThreshold;
+	private final int maxThreshold;
+	private int threshold;
+	private final int[] histogram = new int[256];
+	private final NonMaxSuppressor suppressor = new NonMaxSuppressor();
+
+	/**
+	 * Create a controller for thresholds from 1 to 254.
+	 * @param minCorners The lowest number of corners wanted.
+	 * @param maxCorners The highest number of corners wanted.
+	 * @param threshold The threshold of the first frame.
+	 */
+	public ThresholdController(int minCorners, int maxCorners, int threshold)
+	{
+		this(minCorners, maxCorners, threshold, 1, 254);
+	}
+
+	/**
+	 * Create a controller.
+	 * @param minCorners The lowest number of corners wanted.
+	 * @param maxCorners The highest number of corners wanted.
+	 * @param threshold The threshold of the first frame.
+	 * @param minThreshold The lowest threshold to use.
+	 * @param maxThreshold The highest threshold to use.
+	 */
+	public ThresholdController(int minCorners, int maxCorners, int threshold, int minThreshold, int maxThreshold)
+	{
+		if (minCorners < 0 || maxCorners < minCorners) {
+			throw new IllegalArgumentException("Bad corner band [" + minCorners + ", " + maxCorners + "]");
+		}
+		if (minThreshold < 0 || maxThreshold > 254 || maxThreshold < minThreshold) {
+			throw new IllegalArgumentException("Bad threshold range [" + minThreshold + ", " + maxThreshold + "]");
+		}
+		this.minCorners = minCorners;
+		this.maxCorners = maxCorners;
+		this.minThreshold = minThreshold;
+		this.maxThreshold = maxThreshold;
+		this.threshold = Math.max(minThreshold, Math.min(threshold, maxThreshold));
+	}
+
+	/**
+	 * The threshold the next frame is detected with.
+	 */
+	public int threshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * Adjust the threshold of the next frame from the number of corners found in
+	 * the last one, for callers running the detection themselves.
+	 * @param count The number of corners found with the current threshold.
+	 */
+	public void update(int count)
+	{
+		if (count > maxCorners) {
+			threshold = Math.min(maxThreshold, threshold + step(count, maxCorners));
+		} else if (count < minCorners) {
+			threshold = Math.max(minThreshold, threshold - step(minCorners, count));
+		}
+	}
+
+	private static int step(int larger, int smaller)
+	{
+		double ratio = (double) larger / Math.max(smaller, 1);
+		return (int) Math.max(1, Math.min(MAX_STEP, Math.round(STEP * Math.log(ratio) / Math.log(2))));
+	}
+
+	/**
+	 * Detect FAST corners on the next frame of a sequence by applying a non-maximum
+	 * suppression algorithm on the results, then adjust the threshold.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1. The threshold follows the number of corners found.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public void detectWithNonMax(byte[] image, int w, int h, int stride, int N, CornerBuffer corners)
+	{
+		Fast12.detectCorners(image, w, h, stride, threshold, corners, Fast12.SINGLE_PASS_SCORE);
+		suppressor.suppress(w, h, corners);
+		update(corners.size());
+		Fast12.best(corners, N);
+	}
+
+	/**
+	 * Detect FAST corners on the next frame of a sequence WITHOUT applying a
+	 * non-maximum suppression algorithm on the results, then adjust the threshold.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1. The threshold follows the number of corners found.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public void detect(byte[] image, int w, int h, int stride, int N, CornerBuffer corners)
+	{
+		Fast12.detectCorners(image, w, h, stride, threshold, corners, Fast12.SINGLE_PASS_SCORE);
+		update(corners.size());
+		Fast12.best(corners, N);
+	}
+
+	/**
+	 * Detect FAST corners on a frame WITHOUT applying a non-maximum suppression
+	 * algorithm on the results, with a threshold chosen for that frame alone. The
+	 * image is scanned once, at half the current threshold, and the threshold is set
+	 * to the lowest one, not below that, giving at most maxCorners corners. When that
+	 * scan finds fewer than minCorners, the image is scanned again at minThreshold.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public void detectFrame(byte[] image, int w, int h, int stride, int N, CornerBuffer corners)
+	{
+		int low = scan(image, w, h, stride, false, corners);
+		threshold = choose(corners, low);
+		keep(corners, threshold);
+		Fast12.best(corners, N);
+	}
+
+	/**
+	 * Detect FAST corners on a frame by applying a non-maximum suppression algorithm
+	 * on the results, with a threshold chosen for that frame alone. The image is
+	 * scanned once, at half the current threshold, and the threshold is set to the
+	 * lowest one, not below that, giving at most maxCorners corners after suppression.
+	 * When that scan leaves fewer than minCorners, the image is scanned again at
+	 * minThreshold. The corners are the ones detectWithNonMax finds at that threshold.
+	 *
+	 * @param image A byte array holding the unsigned intensities of the pixels in the
+	 * 				image, row by row. The image is assumed to be grayscale.
+	 * @param w The width of the image.
+	 * @param h The height of the image.
+	 * @param stride The distance, in bytes, between the starts of two consecutive rows.
+	 * @param N	The number of corners to return. To return all corners just
+	 * 			use N=-1.
+	 * @param corners The buffer to write the corners to. Its previous contents are
+	 * 				  discarded. On return it holds the corners sorted by score.
+	 */
+	public void detectFrameWithNonMax(byte[] image, int w, int h, int stride, int N, CornerBuffer corners)
+	{
+		int low = scan(image, w, h, stride, true, corners);
+		threshold = choose(corners, low);
+		keep(corners, threshold);
+		Fast12.best(corners, N);
+	}
+
+	/**
+	 * Finds and scores the corners of a frame at half the current threshold, or at
+	 * minThreshold when there are fewer than minCorners, and suppresses them if asked.
+	 * @return Returns the threshold of the scan.
+	 */
+	private int scan(byte[] image, int w, int h, int stride, boolean nonMax, CornerBuffer corners)
+	{
+		int low = Math.max(minThreshold, threshold / 2);
+		while (true) {
+			Fast12.detectCorners(image, w, h, stride, low, corners, Fast12.SINGLE_PASS_SCORE);
+			if (nonMax) {
+				suppressor.suppress(w, h, corners);
+			}
+			if (corners.size() >= minCorners || low == minThreshold)
+				return low;
+			low = minThreshold;
+		}
+	}
+
+	/**
+	 * Counts corners scoring at least a threshold by score, and finds the lowest
+	 * threshold, not below it, leaving at most maxCorners of them.
+	 */
+	private int choose(CornerBuffer corners, int low)
+	{
+		Arrays.fill(histogram, 0);
+		for (int i = 0; i < corners.size(); ++i) {
+			histogram[Math.min(corners.score(i), 255)]++;
+		}
+		int count = corners.size();
+		int t = low;
+		while (t < maxThreshold && count > maxCorners) {
+			count -= histogram[t++];
+		}
+		return t;
+	}
+
+	/**
+	 * Keeps the corners of a buffer which are corners at a threshold, that is which
+	 * score at least the threshold, in their order.
+	 */
+	private static void keep(CornerBuffer corners, int threshold)
+	{
+		int kept = 0;
+		for (int i = 0; i < corners.size(); ++i) {
+			if (corners.score(i) >= threshold)
+				corners.move(i, kept++);
+		}
+		corners.truncate(kept);
+	}
+}